@@ -0,0 +1,330 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.reactive.controller;
+
+import com.dariawan.contactapp.reactive.domain.Address;
+import com.dariawan.contactapp.reactive.domain.Contact;
+import com.dariawan.contactapp.reactive.domain.SearchMode;
+import com.dariawan.contactapp.reactive.exception.BadResourceException;
+import com.dariawan.contactapp.reactive.exception.PreconditionFailedException;
+import com.dariawan.contactapp.reactive.exception.ResourceNotFoundException;
+import com.dariawan.contactapp.reactive.service.ContactService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import javax.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The /api/contacts contract of the servlet application's ContactController
+ * on WebFlux. Handlers return as soon as the query is built; the response is
+ * written as rows arrive from R2DBC.
+ */
+@RestController
+@RequestMapping("/api")
+@Tag(name = "contact", description = "the Contact API")
+public class ContactController {
+    
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    
+    private final int ROW_PER_PAGE = 5;
+    
+    private static final String HEADER_HAS_NEXT = "X-Has-Next";
+    
+    /**
+     * Columns of a CSV export, the same as the servlet application's.
+     */
+    private static final CsvSchema CSV_SCHEMA = CsvSchema.builder()
+            .addColumn("id")
+            .addColumn("name")
+            .addColumn("phone")
+            .addColumn("email")
+            .addColumn("address1")
+            .addColumn("address2")
+            .addColumn("address3")
+            .addColumn("postalCode")
+            .addColumn("note")
+            .addColumn("version")
+            .build();
+    
+    private static final ObjectWriter CSV_WRITER = new CsvMapper().writerFor(Contact.class).with(CSV_SCHEMA);
+    
+    @Autowired
+    private ContactService contactService;
+    
+    @Operation(summary = "Find Contacts by name", description = "Case-insensitive name search, "
+            + "by name% (PREFIX) or %name% (SUBSTRING, default) format.", tags = { "contact" })
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "successful operation", 
+                content = @Content(array = @ArraySchema(schema = @Schema(implementation = Contact.class)))) })	
+    @GetMapping(value = "/contacts", produces = "application/json")
+    public Mono<ResponseEntity<Flux<Contact>>> findAll(
+            @Parameter(description="Page number, default is 1") @RequestParam(value="page", defaultValue="1") int pageNumber,
+            @Parameter(description="Name of the contact for search.") @RequestParam(required=false) String name,
+            @Parameter(description="How name is matched, default is SUBSTRING.") 
+            @RequestParam(defaultValue="SUBSTRING") SearchMode mode) {
+        // one row more than a page tells whether there is a next page
+        Flux<Contact> contacts = StringUtils.isEmpty(name)
+                ? contactService.findAll(pageNumber, ROW_PER_PAGE, ROW_PER_PAGE + 1)
+                : contactService.findAllByName(name, mode, pageNumber, ROW_PER_PAGE, ROW_PER_PAGE + 1);
+        // X-Has-Next must be sent before the body, so the (small) page is held back
+        return contacts.collectList().map(page -> ResponseEntity.ok()
+                .header(HEADER_HAS_NEXT, String.valueOf(page.size() > ROW_PER_PAGE))
+                .body(Flux.fromIterable(page).take(ROW_PER_PAGE)));
+    }
+
+    @Operation(summary = "Export contacts", description = "Streams every contact matching name "
+            + "(all contacts when name is empty) as NDJSON, in id order", tags = { "contact" })
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "successful operation") })
+    @GetMapping(value = "/contacts/export", produces = "application/x-ndjson")
+    public Flux<Contact> exportContacts(
+            @Parameter(description="Output format, default is NDJSON.") 
+            @RequestParam(defaultValue="NDJSON") String format,
+            @Parameter(description="Name of the contact for search.") @RequestParam(required=false) String name,
+            @Parameter(description="How name is matched, default is SUBSTRING.") 
+            @RequestParam(defaultValue="SUBSTRING") SearchMode mode) {
+        return contactService.exportAll(name, mode);
+    }
+    
+    @Operation(summary = "Export contacts as CSV", description = "Streams every contact matching name "
+            + "(all contacts when name is empty) as CSV with a header row, in id order", tags = { "contact" })
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "successful operation") })
+    @GetMapping(value = "/contacts/export", params = "format=CSV", produces = "text/csv")
+    public Flux<String> exportContactsAsCsv(
+            @Parameter(description="Name of the contact for search.") @RequestParam(required=false) String name,
+            @Parameter(description="How name is matched, default is SUBSTRING.") 
+            @RequestParam(defaultValue="SUBSTRING") SearchMode mode) {
+        List<String> columns = new ArrayList<>();
+        CSV_SCHEMA.forEach(column -> columns.add(column.getName()));
+        return Flux.concat(
+                Mono.just(String.join(",", columns) + "\n"),
+                contactService.exportAll(name, mode).handle((contact, sink) -> {
+                    try {
+                        sink.next(CSV_WRITER.writeValueAsString(contact));
+                    } catch (JsonProcessingException ex) {
+                        sink.error(ex);
+                    }
+                }));
+    }
+
+    @Operation(summary = "Find contact by ID", description = "Returns a single contact. "
+            + "The ETag is the contact's version; with a matching If-None-Match 304 is returned.", 
+            tags = { "contact" })
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "successful operation",
+                content = @Content(schema = @Schema(implementation = Contact.class))),
+        @ApiResponse(responseCode = "304", description = "Contact not modified"),
+        @ApiResponse(responseCode = "404", description = "Contact not found") })
+    @GetMapping(value = "/contacts/{contactId}", produces = "application/json")
+    public Mono<ResponseEntity<Contact>> findContactById(
+            @Parameter(description="Id of the contact to be obtained. Cannot be empty.", required=true)
+            @PathVariable long contactId) {
+        // answered with 304 and no body when If-None-Match matches the ETag
+        return handleErrors(contactService.findById(contactId)
+                .map(contact -> ResponseEntity.ok().eTag(eTag(contact.getVersion())).body(contact)));
+    }
+    
+    @Operation(summary = "Add a new contact", description = "", tags = { "contact" })
+    @ApiResponses(value = { 
+        @ApiResponse(responseCode = "201", description = "Contact created",
+                content = @Content(schema = @Schema(implementation = Contact.class))), 
+        @ApiResponse(responseCode = "400", description = "Invalid input") })	
+    @PostMapping(value = "/contacts", consumes = "application/json")
+    public Mono<ResponseEntity<Contact>> addContact(
+            @Parameter(description="Contact to add. Cannot null or empty.", 
+                    required=true, schema=@Schema(implementation = Contact.class))
+            @Valid @RequestBody Contact contact) {
+        return handleErrors(contactService.save(contact)
+                .map(newContact -> ResponseEntity.created(URI.create("/api/contacts/" + newContact.getId()))
+                        .body(newContact)));
+    }
+    
+    @Operation(summary = "Update an existing contact", description = "", tags = { "contact" })
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "successful operation"),
+        @ApiResponse(responseCode = "400", description = "Invalid ID supplied"),
+        @ApiResponse(responseCode = "404", description = "Contact not found"),
+        @ApiResponse(responseCode = "412", description = "Contact has been modified") })
+    @PutMapping(value = "/contacts/{contactId}", consumes = "application/json")
+    public Mono<ResponseEntity<Void>> updateContact(
+            @Parameter(description="Id of the contact to be update. Cannot be empty.", 
+                    required=true)
+            @PathVariable long contactId,
+            @Parameter(description="ETag of the contact as last read, to reject lost updates.")
+            @RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch,
+            @Parameter(description="Contact to update. Cannot null or empty.", 
+                    required=true, schema=@Schema(implementation = Contact.class))
+            @Valid @RequestBody Contact contact) {
+        return handleErrors(Mono.defer(() -> {
+            contact.setId(contactId);
+            contact.setVersion(null);
+            if (ifMatch != null) {
+                try {
+                    contact.setVersion(ifMatchVersion(ifMatch));
+                } catch (PreconditionFailedException ex) {
+                    return Mono.error(ex);
+                }
+            }
+            return contactService.update(contact).thenReturn(ResponseEntity.ok().<Void>build());
+        }));
+    }
+    
+    @Operation(summary = "Update an existing contact's address", description = "", tags = { "contact" })
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "successful operation"),
+        @ApiResponse(responseCode = "404", description = "Contact not found"),
+        @ApiResponse(responseCode = "412", description = "Contact has been modified") })
+    @PatchMapping("/contacts/{contactId}")
+    public Mono<ResponseEntity<Void>> updateAddress(
+            @Parameter(description="Id of the contact to be update. Cannot be empty.",
+                    required=true)
+            @PathVariable long contactId,
+            @Parameter(description="ETag of the contact as last read, to reject lost updates.")
+            @RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch,
+            @Parameter(description="Contact's address to update.",
+                    required=true, schema=@Schema(implementation = Address.class))
+            @Valid @RequestBody Address address) {
+        return handleErrors(Mono.defer(() -> {
+            try {
+                return contactService.updateAddress(contactId, address, ifMatchVersion(ifMatch))
+                        .thenReturn(ResponseEntity.ok().<Void>build());
+            } catch (PreconditionFailedException ex) {
+                return Mono.error(ex);
+            }
+        }));
+    }
+    
+    @Operation(summary = "Deletes a contact", description = "", tags = { "contact" })
+    @ApiResponses(value = { 
+        @ApiResponse(responseCode = "200", description = "successful operation"),
+        @ApiResponse(responseCode = "404", description = "Contact not found"),
+        @ApiResponse(responseCode = "412", description = "Contact has been modified") })
+    @DeleteMapping(path="/contacts/{contactId}")
+    public Mono<ResponseEntity<Void>> deleteContactById(
+            @Parameter(description="Id of the contact to be delete. Cannot be empty.",
+                    required=true)
+            @PathVariable long contactId,
+            @Parameter(description="ETag of the contact as last read, to reject lost updates.")
+            @RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch) {
+        return handleErrors(Mono.defer(() -> {
+            try {
+                return contactService.deleteById(contactId, ifMatchVersion(ifMatch))
+                        .thenReturn(ResponseEntity.ok().<Void>build());
+            } catch (PreconditionFailedException ex) {
+                return Mono.error(ex);
+            }
+        }));
+    }
+    
+    /**
+     * Answers the service's exceptions with the status codes of the servlet
+     * application: 412, 404 and 400.
+     */
+    private <T> Mono<ResponseEntity<T>> handleErrors(Mono<ResponseEntity<T>> result) {
+        return result
+                .onErrorResume(PreconditionFailedException.class, ex -> {
+                    logger.error(ex.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build());
+                })
+                .onErrorResume(ResourceNotFoundException.class, ex -> {
+                    logger.error(ex.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+                })
+                .onErrorResume(BadResourceException.class, ex -> {
+                    logger.error(ex.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.BAD_REQUEST).build());
+                });
+    }
+    
+    private static String eTag(Long version) {
+        return "\"" + version + "\"";
+    }
+    
+    /**
+     * Version expected by an If-Match header, null when any version will do.
+     * Only a single strong ETag can match since versions are compared exactly.
+     */
+    private static Long ifMatchVersion(String ifMatch) throws PreconditionFailedException {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.valueOf(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException ex) {
+                // not one of our ETags, reported below
+            }
+        }
+        throw new PreconditionFailedException("If-Match " + ifMatch + " does not match any contact version");
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.reactive.repository;
+
+import com.dariawan.contactapp.reactive.domain.Contact;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Contacts over R2DBC. Queries emit rows as the driver reads them, so a
+ * subscriber that requests slowly holds back the rest of the result.
+ */
+public interface ContactRepository extends ReactiveCrudRepository<Contact, Long> {
+    
+    @Query("SELECT * FROM contact ORDER BY id LIMIT :limit OFFSET :offset")
+    Flux<Contact> findPage(int limit, long offset);
+    
+    /**
+     * A page of the contacts whose lower-cased name is LIKE pattern, with
+     * '\' escaping the wildcards in pattern.
+     */
+    @Query("SELECT * FROM contact WHERE lower(name) LIKE :pattern ESCAPE '\\' "
+            + "ORDER BY id LIMIT :limit OFFSET :offset")
+    Flux<Contact> findPageByName(String pattern, int limit, long offset);
+    
+    @Query("SELECT * FROM contact ORDER BY id")
+    Flux<Contact> findAllOrderById();
+    
+    @Query("SELECT * FROM contact WHERE lower(name) LIKE :pattern ESCAPE '\\' ORDER BY id")
+    Flux<Contact> findAllByNameOrderById(String pattern);
+    
+    /**
+     * Delete the contact only if version is still its current version.
+     * Emits the number of deleted rows.
+     */
+    @Modifying
+    @Query("DELETE FROM contact WHERE id = :id AND version = :version")
+    Mono<Integer> deleteByIdAndVersion(Long id, Long version);
+}
@@ -0,0 +1,190 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.reactive.service;
+
+import com.dariawan.contactapp.reactive.domain.Address;
+import com.dariawan.contactapp.reactive.domain.Contact;
+import com.dariawan.contactapp.reactive.domain.SearchMode;
+import com.dariawan.contactapp.reactive.exception.BadResourceException;
+import com.dariawan.contactapp.reactive.exception.PreconditionFailedException;
+import com.dariawan.contactapp.reactive.exception.ResourceNotFoundException;
+import com.dariawan.contactapp.reactive.repository.ContactRepository;
+import java.util.Locale;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The contact operations of the servlet application's ContactService,
+ * without blocking. Failures are signalled as errors of the returned
+ * publishers, with the same exceptions.
+ */
+@Service
+public class ContactService {
+    
+    private static final char ESCAPE = '\\';
+    
+    private final ContactRepository contactRepository;
+
+    public ContactService(ContactRepository contactRepository) {
+        this.contactRepository = contactRepository;
+    }
+    
+    public Mono<Contact> findById(Long id) {
+        return contactRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Cannot find Contact with id: " + id)));
+    }
+    
+    /**
+     * Contacts of page pageNumber (starting at 1), in id order. Emits up to
+     * limit contacts, which may be more than rowPerPage to look ahead.
+     */
+    public Flux<Contact> findAll(int pageNumber, int rowPerPage, int limit) {
+        return contactRepository.findPage(limit, offset(pageNumber, rowPerPage));
+    }
+    
+    /**
+     * Search by name, like {@link #findAll(int, int, int)}.
+     */
+    public Flux<Contact> findAllByName(String name, SearchMode mode, int pageNumber, int rowPerPage, int limit) {
+        return contactRepository.findPageByName(pattern(name, mode), limit, offset(pageNumber, rowPerPage));
+    }
+    
+    /**
+     * Every contact matching name (all contacts when name is empty), in id
+     * order. Rows are read as they are requested downstream.
+     */
+    public Flux<Contact> exportAll(String name, SearchMode mode) {
+        if (StringUtils.isEmpty(name)) {
+            return contactRepository.findAllOrderById();
+        }
+        return contactRepository.findAllByNameOrderById(pattern(name, mode));
+    }
+    
+    /**
+     * Create a new contact, any id or version given is ignored.
+     */
+    public Mono<Contact> save(Contact contact) {
+        if (StringUtils.isEmpty(contact.getName())) {
+            BadResourceException exc = new BadResourceException("Failed to save contact");
+            exc.addErrorMessage("Contact is null or empty");
+            return Mono.error(exc);
+        }
+        contact.setId(null);
+        contact.setVersion(null);
+        return contactRepository.save(contact);
+    }
+    
+    /**
+     * Replace a contact. When contact carries a version, the update only
+     * succeeds if it is still the current version of the contact.
+     */
+    public Mono<Contact> update(Contact contact) {
+        if (StringUtils.isEmpty(contact.getName())) {
+            BadResourceException exc = new BadResourceException("Failed to save contact");
+            exc.addErrorMessage("Contact is null or empty");
+            return Mono.error(exc);
+        }
+        return findById(contact.getId())
+                .flatMap(current -> {
+                    if (contact.getVersion() == null) {
+                        contact.setVersion(current.getVersion());
+                    }
+                    return save(contact.getVersion(), contact);
+                });
+    }
+    
+    public Mono<Contact> updateAddress(Long id, Address address, Long version) {
+        return findById(id)
+                .flatMap(contact -> {
+                    contact.setAddress1(address.getAddress1());
+                    contact.setAddress2(address.getAddress2());
+                    contact.setAddress3(address.getAddress3());
+                    contact.setPostalCode(address.getPostalCode());
+                    if (version != null) {
+                        contact.setVersion(version);
+                    }
+                    return save(contact.getVersion(), contact);
+                });
+    }
+    
+    /**
+     * Delete a contact, when version is given only if it is still the
+     * current version of the contact.
+     */
+    public Mono<Void> deleteById(Long id, Long version) {
+        return findById(id)
+                .flatMap(contact -> contactRepository.deleteByIdAndVersion(id, 
+                        version != null ? version : contact.getVersion()))
+                .flatMap(deleted -> deleted > 0 ? Mono.<Void>empty() : Mono.error(modified(id, version)));
+    }
+    
+    private Mono<Contact> save(Long version, Contact contact) {
+        return contactRepository.save(contact)
+                .onErrorMap(OptimisticLockingFailureException.class, ex -> modified(contact.getId(), version));
+    }
+    
+    private static PreconditionFailedException modified(Long id, Long version) {
+        return new PreconditionFailedException("Contact with id: " + id + " is no longer at version " + version);
+    }
+    
+    private static long offset(int pageNumber, int rowPerPage) {
+        return (long) Math.max(pageNumber - 1, 0) * rowPerPage;
+    }
+    
+    /**
+     * LIKE pattern matching a lower-cased name, see
+     * {@link ContactRepository#findPageByName(String, int, long)}.
+     */
+    private static String pattern(String name, SearchMode mode) {
+        StringBuilder sb = new StringBuilder();
+        if (mode == SearchMode.SUBSTRING) {
+            sb.append('%');
+        }
+        for (char c : name.toLowerCase(Locale.ROOT).toCharArray()) {
+            if (c == '%' || c == '_' || c == ESCAPE) {
+                sb.append(ESCAPE);
+            }
+            sb.append(c);
+        }
+        return sb.append('%').toString();
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.reactive.benchmark;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assume.assumeNoException;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Side by side comparison of the servlet application (stack.servlet-url) and
+ * this one (stack.reactive-url) at stack.concurrency requests in flight:
+ * requests per second and p50/p99/p99.9 latency of a mix of reads by id and
+ * name searches. Both applications must be running against the same
+ * PostgreSQL database, each with the same connection pool size, e.g.
+ * <pre>
+ * mvn spring-boot:run                      (in the parent directory, port 8080)
+ * mvn spring-boot:run                      (in this directory, port 8081)
+ * mvn test -Pbenchmark -Dstack.concurrency=2000
+ * </pre>
+ */
+public class StackComparisonBenchmark {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    
+    private static final String SERVLET_URL = System.getProperty("stack.servlet-url", "http://localhost:8080");
+    
+    private static final String REACTIVE_URL = System.getProperty("stack.reactive-url", "http://localhost:8081");
+    
+    private static final int CONCURRENCY = Integer.getInteger("stack.concurrency", 1000);
+    
+    private static final int WARMUP_SECONDS = Integer.getInteger("stack.warmup", 10);
+    
+    private static final int DURATION_SECONDS = Integer.getInteger("stack.duration", 30);
+    
+    /**
+     * Percentage of the requests that search by name, the rest read by id.
+     */
+    private static final int SEARCH_PERCENT = Integer.getInteger("stack.search-percent", 20);
+    
+    private static final String[] TERMS = { "a", "an", "e", "ri", "o", "Jo", "Ma" };
+    
+    private final WebClient webClient = WebClient.builder()
+            .clientConnector(new ReactorClientHttpConnector(HttpClient.create(
+                    ConnectionProvider.builder("stack-benchmark")
+                            .maxConnections(CONCURRENCY)
+                            .pendingAcquireMaxCount(-1)
+                            .build())))
+            .build();
+    
+    @Test
+    public void compareStacks() {
+        List<Long> ids = ids(REACTIVE_URL);
+        assertFalse("no contacts in the database", ids.isEmpty());
+        
+        Result servlet = measure("servlet", SERVLET_URL, ids);
+        Result reactive = measure("reactive", REACTIVE_URL, ids);
+        
+        for (Result result : new Result[] { servlet, reactive }) {
+            logger.info("{}: {} requests/s at {} in flight, p50 {}ms, p99 {}ms, p99.9 {}ms, {} errors", 
+                    result.stack, String.format("%.0f", result.throughput), CONCURRENCY,
+                    millis(result.latencies, 50), millis(result.latencies, 99), millis(result.latencies, 99.9),
+                    result.errors);
+        }
+    }
+    
+    private Result measure(String stack, String baseUrl, List<Long> ids) {
+        run(baseUrl, ids, WARMUP_SECONDS, new ConcurrentHistogram(3), new AtomicLong(), new AtomicLong());
+        
+        Result result = new Result();
+        result.stack = stack;
+        result.latencies = new ConcurrentHistogram(3);
+        AtomicLong completed = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        run(baseUrl, ids, DURATION_SECONDS, result.latencies, completed, errors);
+        // including the requests still in flight when no more were started
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        result.throughput = completed.get() / seconds;
+        result.errors = errors.get();
+        return result;
+    }
+    
+    /**
+     * Closed loop: keep CONCURRENCY requests in flight for seconds, starting
+     * a new one as soon as one completes, and wait for the last ones.
+     * Successful requests are counted in completed, failed ones in errors.
+     */
+    private void run(String baseUrl, List<Long> ids, int seconds, Histogram latencies, 
+            AtomicLong completed, AtomicLong errors) {
+        Flux.<Integer>generate(sink -> sink.next(0))
+                .take(Duration.ofSeconds(seconds))
+                .flatMap(ignored -> request(baseUrl, ids, latencies, completed, errors), CONCURRENCY)
+                .then()
+                .block();
+    }
+    
+    private Mono<Void> request(String baseUrl, List<Long> ids, Histogram latencies, 
+            AtomicLong completed, AtomicLong errors) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String uri = random.nextInt(100) < SEARCH_PERCENT
+                ? baseUrl + "/api/contacts?name=" + TERMS[random.nextInt(TERMS.length)]
+                : baseUrl + "/api/contacts/" + ids.get(random.nextInt(ids.size()));
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return webClient.get().uri(uri)
+                    .retrieve()
+                    .toBodilessEntity()
+                    .doOnSuccess(response -> {
+                        latencies.recordValue(System.nanoTime() - start);
+                        completed.incrementAndGet();
+                    })
+                    .then();
+        }).onErrorResume(ex -> {
+            errors.incrementAndGet();
+            return Mono.empty();
+        });
+    }
+    
+    /**
+     * Ids of the contacts in the database, streamed from the export of url.
+     */
+    private List<Long> ids(String baseUrl) {
+        try {
+            return webClient.get().uri(baseUrl + "/api/contacts/export")
+                    .accept(MediaType.valueOf("application/x-ndjson"))
+                    .retrieve()
+                    // one line, that is one contact, at a time
+                    .bodyToFlux(String.class)
+                    .filter(line -> line.startsWith("{\"id\":"))
+                    .map(line -> Long.valueOf(line.substring(6, line.indexOf(','))))
+                    .collectList()
+                    .block();
+        } catch (RuntimeException ex) {
+            assumeNoException(baseUrl + " is not running", ex);
+            throw ex;
+        }
+    }
+    
+    private static String millis(Histogram latencies, double percentile) {
+        return String.format("%.2f", latencies.getValueAtPercentile(percentile) / 1_000_000.0);
+    }
+    
+    private static class Result {
+        
+        private String stack;
+        
+        private double throughput;
+        
+        private Histogram latencies;
+        
+        private long errors;
+    }
+}
@@ -0,0 +1,236 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.reactive.controller;
+
+import com.dariawan.contactapp.reactive.domain.Contact;
+import com.dariawan.contactapp.reactive.repository.ContactRepository;
+import io.r2dbc.spi.ConnectionFactory;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.r2dbc.connectionfactory.init.ConnectionFactoryInitializer;
+import org.springframework.data.r2dbc.connectionfactory.init.ResourceDatabasePopulator;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureWebTestClient
+@ActiveProfiles("h2")
+public class ContactControllerTest {
+    
+    @TestConfiguration
+    static class SchemaConfig {
+        
+        @Bean
+        public ConnectionFactoryInitializer schemaInitializer(ConnectionFactory connectionFactory) {
+            ConnectionFactoryInitializer initializer = new ConnectionFactoryInitializer();
+            initializer.setConnectionFactory(connectionFactory);
+            initializer.setDatabasePopulator(new ResourceDatabasePopulator(new ClassPathResource("schema-h2.sql")));
+            return initializer;
+        }
+    }
+    
+    @Autowired
+    private WebTestClient webTestClient;
+    
+    @Autowired
+    private ContactRepository contactRepository;
+    
+    private Contact luffy;
+    
+    @Before
+    public void prepareTestData() {
+        contactRepository.deleteAll().block();
+        List<Contact> contacts = Flux.just("Monkey D. Luffy", "Monkey D. Garp", "Nami", 
+                "Nico Robin", "Trafalgar D. Water Law", "100% Franky", "Roronoa Zoro")
+                .map(this::contact)
+                .concatMap(contactRepository::save)
+                .collectList()
+                .block();
+        luffy = contacts.get(0);
+    }
+    
+    @Test
+    public void testFindAllPages() {
+        webTestClient.get().uri("/api/contacts")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("X-Has-Next", "true")
+                .expectBodyList(Contact.class).hasSize(5);
+        
+        webTestClient.get().uri("/api/contacts?page=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("X-Has-Next", "false")
+                .expectBodyList(Contact.class).hasSize(2);
+    }
+    
+    @Test
+    public void testSearchMatchesWildcardsLiterally() {
+        webTestClient.get().uri("/api/contacts?name=monkey&mode=PREFIX")
+                .exchange()
+                .expectBodyList(Contact.class).hasSize(2);
+        webTestClient.get().uri("/api/contacts?name=100%25")
+                .exchange()
+                .expectBodyList(Contact.class).hasSize(1);
+        webTestClient.get().uri("/api/contacts?name=N_mi")
+                .exchange()
+                .expectBodyList(Contact.class).hasSize(0);
+    }
+    
+    @Test
+    public void testFindByIdSendsVersionAsETag() {
+        webTestClient.get().uri("/api/contacts/{id}", luffy.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"0\"")
+                .expectBody().jsonPath("$.name").isEqualTo("Monkey D. Luffy");
+        
+        webTestClient.get().uri("/api/contacts/{id}", luffy.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"0\"")
+                .exchange()
+                .expectStatus().isNotModified();
+        
+        webTestClient.get().uri("/api/contacts/{id}", luffy.getId() + 1000)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+    
+    @Test
+    public void testAddContact() {
+        Contact contact = contact("Tony Tony Chopper");
+        contact.setId(42L);
+        webTestClient.post().uri("/api/contacts")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(contact)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().value(HttpHeaders.LOCATION, location -> 
+                        assertTrue(location.startsWith("/api/contacts/")));
+        
+        contact.setEmail("not an email");
+        webTestClient.post().uri("/api/contacts")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(contact)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+    
+    @Test
+    public void testUpdateRejectsStaleVersion() {
+        luffy.setPhone("62482211");
+        webTestClient.put().uri("/api/contacts/{id}", luffy.getId())
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(luffy)
+                .exchange()
+                .expectStatus().isOk();
+        
+        webTestClient.put().uri("/api/contacts/{id}", luffy.getId())
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(luffy)
+                .exchange()
+                .expectStatus().isEqualTo(412);
+        
+        assertEquals(Long.valueOf(1), contactRepository.findById(luffy.getId()).block().getVersion());
+    }
+    
+    @Test
+    public void testDeleteChecksVersion() {
+        webTestClient.delete().uri("/api/contacts/{id}", luffy.getId())
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .exchange()
+                .expectStatus().isEqualTo(412);
+        
+        webTestClient.delete().uri("/api/contacts/{id}", luffy.getId())
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .exchange()
+                .expectStatus().isOk();
+        
+        webTestClient.delete().uri("/api/contacts/{id}", luffy.getId())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+    
+    @Test
+    public void testExportStreamsEveryContact() {
+        String ndjson = webTestClient.get().uri("/api/contacts/export")
+                .accept(MediaType.valueOf("application/x-ndjson"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+        String[] contacts = ndjson.split("\n");
+        assertEquals(7, contacts.length);
+        assertTrue(contacts[0].contains("\"id\":" + luffy.getId() + ","));
+        
+        String csv = webTestClient.get().uri("/api/contacts/export?format=CSV&name=monkey")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+        String[] lines = csv.split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("id,name,phone,email,address1,address2,address3,postalCode,note,version", lines[0]);
+    }
+    
+    private Contact contact(String name) {
+        Contact contact = new Contact();
+        contact.setName(name);
+        contact.setEmail("reactive@example.com");
+        return contact;
+    }
+}
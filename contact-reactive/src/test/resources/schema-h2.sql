@@ -0,0 +1,17 @@
+-- The contact table as left by the servlet application's Flyway migrations
+CREATE TABLE IF NOT EXISTS contact
+(
+  id bigint NOT NULL,
+  name varchar(255),
+  phone varchar(255),
+  email varchar(255),
+  address1 varchar(255),
+  address2 varchar(255),
+  address3 varchar(255),
+  postal_code varchar(255),
+  note varchar(4000),
+  version bigint NOT NULL DEFAULT 0,
+  CONSTRAINT contact_pkey PRIMARY KEY (id)
+);
+CREATE SEQUENCE IF NOT EXISTS contact_id_seq START WITH 1 INCREMENT BY 50;
+ALTER TABLE contact ALTER COLUMN id SET DEFAULT NEXT VALUE FOR contact_id_seq;
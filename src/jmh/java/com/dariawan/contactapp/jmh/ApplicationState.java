@@ -0,0 +1,109 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.jmh;
+
+import com.dariawan.contactapp.ContactApplication;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * The application without its web server, on the embedded H2 database of
+ * the h2 profile, seeded with the given number of contacts.
+ */
+@State(Scope.Benchmark)
+public class ApplicationState {
+    
+    @Param({ "10000" })
+    private int rows;
+    
+    private ConfigurableApplicationContext context;
+    
+    private long[] ids;
+    
+    @Setup
+    public void setUp() throws SQLException {
+        context = new SpringApplicationBuilder(ContactApplication.class)
+                .profiles("h2")
+                .web(WebApplicationType.NONE)
+                .run();
+        try (Connection conn = getBean(DataSource.class).getConnection()) {
+            PreparedStatement ps = conn.prepareStatement(
+                    "insert into contact (name, phone, email, note) values (?, ?, ?, ?)");
+            for (int i = 0; i < rows; i++) {
+                ps.setString(1, "Bench Contact " + i);
+                ps.setString(2, "+62 482 " + (1000000 + i));
+                ps.setString(3, BenchmarkContacts.EMAIL);
+                ps.setString(4, "Note of bench contact " + i);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            
+            // plain inserts take ids from the pooled sequence, so they are not consecutive
+            ids = new long[rows];
+            ResultSet rs = conn.createStatement().executeQuery("select id from contact order by id");
+            for (int i = 0; i < rows && rs.next(); i++) {
+                ids[i] = rs.getLong(1);
+            }
+        }
+    }
+    
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+    
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+    
+    public long[] getIds() {
+        return ids;
+    }
+}
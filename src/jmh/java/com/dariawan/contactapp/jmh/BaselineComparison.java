@@ -0,0 +1,178 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.jmh;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares a JMH JSON result with the saved baseline and fails when a
+ * benchmark got slower, or allocates more per operation, by more than the
+ * tolerance. When asked to update the baseline, the result is saved as the
+ * new baseline instead; a missing baseline is an error otherwise, and only a
+ * run of all benchmarks may become the baseline. Arguments: result file,
+ * baseline file, tolerance (0.1 for 10%), whether to update the baseline,
+ * the benchmarks that were run and the pattern that selects all of them.
+ */
+public class BaselineComparison {
+    
+    private static final Logger logger = LoggerFactory.getLogger(BaselineComparison.class);
+    
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+    
+    public static void main(String[] args) throws IOException {
+        Path result = Paths.get(args[0]);
+        Path baseline = Paths.get(args[1]);
+        double tolerance = Double.parseDouble(args[2]);
+        boolean update = Boolean.parseBoolean(args[3]);
+        String include = args[4];
+        String includeAll = args[5];
+        
+        if (update) {
+            if (!include.equals(includeAll)) {
+                // a partial baseline would silently stop comparing the benchmarks left out
+                throw new IllegalStateException("Not saving the results of -Djmh.include=" + include 
+                        + " as the baseline, run all benchmarks to update it");
+            }
+            Files.createDirectories(baseline.toAbsolutePath().getParent());
+            Files.copy(result, baseline, StandardCopyOption.REPLACE_EXISTING);
+            logger.info("Saved {} as the new baseline {}", result, baseline);
+            return;
+        }
+        if (!Files.exists(baseline)) {
+            throw new IllegalStateException("No baseline at " + baseline 
+                    + ", create one on the reference machine with -Djmh.baseline.update=true");
+        }
+        
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode baselineResults = mapper.readTree(baseline.toFile());
+        JsonNode results = mapper.readTree(result.toFile());
+        String baselineJvm = jvm(baselineResults);
+        if (!baselineJvm.equals(jvm(results))) {
+            logger.warn("Baseline was taken on {}, this run on {}; scores may not be comparable", 
+                    baselineJvm, jvm(results));
+        }
+        Map<String, JsonNode> expected = byKey(baselineResults);
+        List<String> regressions = new ArrayList<>();
+        for (Map.Entry<String, JsonNode> actual : byKey(results).entrySet()) {
+            JsonNode before = expected.get(actual.getKey());
+            if (before == null) {
+                logger.info("{}: not in the baseline", actual.getKey());
+                continue;
+            }
+            JsonNode after = actual.getValue();
+            boolean higherIsBetter = "thrpt".equals(after.path("mode").asText());
+            compare(actual.getKey(), "score", before.path("primaryMetric"), after.path("primaryMetric"), 
+                    higherIsBetter, tolerance, regressions);
+            JsonNode allocationBefore = allocation(before);
+            JsonNode allocationAfter = allocation(after);
+            if (allocationBefore != null && allocationAfter != null) {
+                compare(actual.getKey(), "allocation", allocationBefore, allocationAfter, 
+                        false, tolerance, regressions);
+            }
+        }
+        if (!regressions.isEmpty()) {
+            throw new IllegalStateException(regressions.size() + " benchmark regression(s) against " 
+                    + baseline + ":\n" + String.join("\n", regressions));
+        }
+        logger.info("No regressions against {}", baseline);
+    }
+    
+    private static void compare(String benchmark, String metric, JsonNode before, JsonNode after, 
+            boolean higherIsBetter, double tolerance, List<String> regressions) {
+        double expected = before.path("score").asDouble();
+        double actual = after.path("score").asDouble();
+        // differences within the measurement error of the new run are not regressions
+        double error = Double.isNaN(after.path("scoreError").asDouble()) ? 0 : after.path("scoreError").asDouble();
+        double change = expected == 0 ? 0 : (actual - expected) / expected;
+        String line = String.format("%s %s: %.3f -> %.3f %s (%+.1f%%)", benchmark, metric, expected, actual, 
+                after.path("scoreUnit").asText(), change * 100);
+        boolean worse = higherIsBetter 
+                ? actual + error < expected * (1 - tolerance)
+                : actual - error > expected * (1 + tolerance);
+        if (worse) {
+            regressions.add(line);
+        }
+        logger.info("{}{}", line, worse ? " REGRESSION" : "");
+    }
+    
+    private static JsonNode allocation(JsonNode benchmark) {
+        Iterator<Map.Entry<String, JsonNode>> metrics = benchmark.path("secondaryMetrics").fields();
+        while (metrics.hasNext()) {
+            Map.Entry<String, JsonNode> metric = metrics.next();
+            // the gc profiler prefixes its metrics with a middle dot
+            if (metric.getKey().endsWith(ALLOCATION)) {
+                return metric.getValue();
+            }
+        }
+        return null;
+    }
+    
+    private static String jvm(JsonNode results) {
+        JsonNode first = results.path(0);
+        return first.path("vmName").asText() + " " + first.path("jdkVersion").asText();
+    }
+    
+    private static Map<String, JsonNode> byKey(JsonNode results) {
+        Map<String, JsonNode> benchmarks = new LinkedHashMap<>();
+        for (JsonNode benchmark : results) {
+            StringBuilder key = new StringBuilder(benchmark.path("benchmark").asText());
+            Iterator<Map.Entry<String, JsonNode>> params = benchmark.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(key.indexOf(":") < 0 ? ":" : ",").append(param.getKey())
+                        .append('=').append(param.getValue().asText());
+            }
+            benchmarks.put(key.toString(), benchmark);
+        }
+        return benchmarks;
+    }
+}
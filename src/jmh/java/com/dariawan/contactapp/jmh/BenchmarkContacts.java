@@ -0,0 +1,77 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.jmh;
+
+import com.dariawan.contactapp.domain.Contact;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Contacts with every field filled in, as a listing would return them.
+ */
+final class BenchmarkContacts {
+    
+    static final String EMAIL = "jmh@bench.invalid";
+    
+    private BenchmarkContacts() {
+    }
+    
+    static Contact contact(long i) {
+        Contact contact = new Contact();
+        contact.setId(i);
+        contact.setName("Bench Contact " + i);
+        contact.setPhone("+62 482 " + (1000000 + i));
+        contact.setEmail("contact" + i + "@bench.invalid");
+        contact.setAddress1("888 Constantine Ave, #" + i);
+        contact.setAddress2("San Angeles");
+        contact.setAddress3("Florida");
+        contact.setPostalCode("32106");
+        contact.setNote("Note of bench contact " + i);
+        contact.setVersion(0L);
+        return contact;
+    }
+    
+    static List<Contact> contacts(int size) {
+        List<Contact> contacts = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            contacts.add(contact(i));
+        }
+        return contacts;
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.jmh;
+
+import com.dariawan.contactapp.domain.Contact;
+import com.dariawan.contactapp.io.ContactProtobufHttpMessageConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.converter.xml.MappingJackson2XmlHttpMessageConverter;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+/**
+ * Encoding and decoding a page of contacts with the message converter of
+ * each media type of the API. The size of the encoded page, the bytes on
+ * the wire, is printed when a trial starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ContactEncodingBenchmark {
+    
+    private static final Type CONTACT_LIST = new ParameterizedTypeReference<List<Contact>>() { }.getType();
+    
+    @Param({ "JSON", "XML", "SMILE", "CBOR", "PROTOBUF" })
+    private String format;
+    
+    @Param({ "10", "500" })
+    private int size;
+    
+    private List<Contact> contacts;
+    
+    private GenericHttpMessageConverter<Object> converter;
+    
+    private byte[] encoded;
+    
+    @Setup
+    public void setUp() throws IOException {
+        contacts = BenchmarkContacts.contacts(size);
+        converter = converter(format);
+        encoded = encode();
+        System.out.println(format + ", " + size + " contacts: " + encoded.length + " bytes");
+    }
+    
+    @Benchmark
+    public byte[] encode() throws IOException {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(contacts, CONTACT_LIST, null, output);
+        return output.getBodyAsBytes();
+    }
+    
+    @Benchmark
+    public Object decode() throws IOException {
+        return converter.read(CONTACT_LIST, null, new MockHttpInputMessage(encoded));
+    }
+    
+    private static GenericHttpMessageConverter<Object> converter(String format) {
+        ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+        switch (format) {
+            case "JSON":
+                return new MappingJackson2HttpMessageConverter(json);
+            case "XML":
+                return new MappingJackson2XmlHttpMessageConverter(Jackson2ObjectMapperBuilder.xml().build());
+            case "SMILE":
+                return new MappingJackson2SmileHttpMessageConverter(
+                        Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build());
+            case "CBOR":
+                return new MappingJackson2CborHttpMessageConverter(
+                        Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build());
+            case "PROTOBUF":
+                return new ContactProtobufHttpMessageConverter(json);
+            default:
+                throw new IllegalArgumentException("Unknown format " + format);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.jmh;
+
+import com.dariawan.contactapp.config.JacksonConfig;
+import com.dariawan.contactapp.domain.Contact;
+import com.dariawan.contactapp.io.ContactFormat;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Writing a page of contacts as JSON and as XML, with the object mappers
+ * Spring MVC's message converters are built with by default or with the
+ * ones of JacksonConfig (tuned), and streaming contacts one by one into a
+ * JSON array like the JSON export does. Run with -prof gc to compare the
+ * allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ContactSerializationBenchmark {
+    
+    @Param({ "10", "500" })
+    private int size;
+    
+    @Param({ "default", "tuned" })
+    private String mappers;
+    
+    private List<Contact> contacts;
+    
+    private ObjectMapper json;
+    
+    private ObjectMapper xml;
+    
+    @Setup
+    public void setUp() {
+        contacts = BenchmarkContacts.contacts(size);
+        if (mappers.equals("tuned")) {
+            json = Jackson2ObjectMapperBuilder.json().modulesToInstall(new AfterburnerModule()).build();
+            xml = new XmlMapper(JacksonConfig.xmlFactory());
+            Jackson2ObjectMapperBuilder.xml().modulesToInstall(new AfterburnerModule()).configure(xml);
+        }
+        else {
+            json = Jackson2ObjectMapperBuilder.json().build();
+            xml = Jackson2ObjectMapperBuilder.xml().build();
+        }
+    }
+    
+    @Benchmark
+    public byte[] writeJson() throws JsonProcessingException {
+        return json.writeValueAsBytes(contacts);
+    }
+    
+    @Benchmark
+    public byte[] writeXml() throws JsonProcessingException {
+        return xml.writeValueAsBytes(contacts);
+    }
+    
+    @Benchmark
+    public long streamJson() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        try (SequenceWriter writer = ContactFormat.JSON.writer(json, out)) {
+            for (Contact contact : contacts) {
+                writer.write(contact);
+            }
+        }
+        return out.count;
+    }
+    
+    /**
+     * Stands in for the response stream, keeps nothing.
+     */
+    private static class CountingOutputStream extends OutputStream {
+        
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
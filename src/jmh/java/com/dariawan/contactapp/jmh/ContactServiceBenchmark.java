@@ -0,0 +1,99 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.jmh;
+
+import com.dariawan.contactapp.domain.Contact;
+import com.dariawan.contactapp.exception.ResourceNotFoundException;
+import com.dariawan.contactapp.service.ContactService;
+import com.dariawan.contactapp.specification.SearchMode;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Slice;
+
+/**
+ * ContactService reads against the embedded database, through the service's
+ * proxies: transactions, second-level cache and request coalescing included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ContactServiceBenchmark {
+    
+    @Param({ "10", "100" })
+    private int pageSize;
+    
+    private ContactService contactService;
+    
+    private long[] ids;
+    
+    @Setup
+    public void setUp(ApplicationState application) {
+        contactService = application.getBean(ContactService.class);
+        ids = application.getIds();
+    }
+    
+    @Benchmark
+    public Contact findById() throws ResourceNotFoundException {
+        return contactService.findById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+    
+    @Benchmark
+    public Slice<Contact> findSlice() {
+        return contactService.findSlice(1, pageSize);
+    }
+    
+    @Benchmark
+    public Slice<Contact> findSliceByNamePrefix() {
+        return contactService.findSliceByName("bench contact 1", SearchMode.PREFIX, 1, pageSize);
+    }
+}
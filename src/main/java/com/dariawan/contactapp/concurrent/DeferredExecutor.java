@@ -0,0 +1,130 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.concurrent;
+
+import java.time.Duration;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.context.request.async.DeferredResult;
+
+/**
+ * Runs blocking work on a bounded pool of threads and hands its result to
+ * Spring MVC as a DeferredResult, so the request thread is released while
+ * the work waits and runs. When the queue is full, or the work has not
+ * started within the timeout, it is dropped and the request is answered
+ * with the given overload result instead. Work that has started is never
+ * answered as overloaded, a write may have committed by then: its own result
+ * is the answer, however long it takes (up to spring.mvc.async.request-timeout).
+ * Disabled, the work runs on the calling thread.
+ */
+public class DeferredExecutor implements DisposableBean {
+    
+    private final boolean enabled;
+    
+    private final long timeoutMillis;
+    
+    private final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    
+    private final ScheduledThreadPoolExecutor timeouts = 
+            new ScheduledThreadPoolExecutor(1, new CustomizableThreadFactory("deferred-timeout-"));
+
+    public DeferredExecutor(boolean enabled, int poolSize, int queueCapacity, Duration timeout, 
+            TaskDecorator taskDecorator) {
+        this.enabled = enabled;
+        this.timeoutMillis = timeout.toMillis();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("deferred-");
+        executor.setTaskDecorator(taskDecorator);
+        timeouts.setRemoveOnCancelPolicy(true);
+        if (enabled) {
+            executor.initialize();
+        }
+    }
+    
+    public <T> DeferredResult<T> execute(Supplier<T> work, T overloaded) {
+        // no timeout result: only work that never started is answered as overloaded
+        DeferredResult<T> result = new DeferredResult<>();
+        if (!enabled) {
+            result.setResult(work.get());
+            return result;
+        }
+        try {
+            Future<?> future = executor.submit(() -> {
+                try {
+                    result.setResult(work.get());
+                } catch (RuntimeException ex) {
+                    result.setErrorResult(ex);
+                }
+            });
+            ScheduledFuture<?> timeout = timeouts.schedule(() -> {
+                // false once the work runs, which then sets the result itself
+                if (future.cancel(false)) {
+                    result.setResult(overloaded);
+                }
+            }, timeoutMillis, TimeUnit.MILLISECONDS);
+            result.onCompletion(() -> timeout.cancel(false));
+        } catch (TaskRejectedException ex) {
+            result.setResult(overloaded);
+        }
+        return result;
+    }
+    
+    /**
+     * Number of tasks waiting for a thread.
+     */
+    public int getQueueSize() {
+        return enabled ? executor.getThreadPoolExecutor().getQueue().size() : 0;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+        timeouts.shutdownNow();
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.config;
+
+import com.dariawan.contactapp.concurrent.DeferredExecutor;
+import com.dariawan.contactapp.datasource.ReplicaRoutingDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The executor ContactController hands its database work to, sized to the
+ * connection pool so that its threads never wait for a connection. Not an
+ * Executor bean, which would replace the one Spring MVC streams responses on.
+ * Disabled when requests run on virtual threads, see VirtualThreadConfig.
+ */
+@Configuration
+@EnableConfigurationProperties(AsyncProperties.class)
+public class AsyncConfig {
+    
+    @Bean
+    public DeferredExecutor deferredExecutor(AsyncProperties properties, 
+            @Value("${contact.threads.virtual:false}") boolean virtualThreads) {
+        // a blocked virtual request thread costs next to nothing, the work stays on it
+        return new DeferredExecutor(properties.isEnabled() && !virtualThreads, properties.getPoolSize(), 
+                properties.getQueueCapacity(), properties.getTimeout(), task -> {
+                    // a read-your-writes scope of the request thread applies to its work too
+                    if (!ReplicaRoutingDataSource.isPrimaryOnly()) {
+                        return task;
+                    }
+                    return () -> {
+                        try (ReplicaRoutingDataSource.PrimaryScope scope = ReplicaRoutingDataSource.primaryOnly()) {
+                            task.run();
+                        }
+                    };
+                });
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.config;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Sizing of the Hibernate second-level cache regions, bound from
+ * contact.cache.* in application.properties.
+ */
+@ConfigurationProperties(prefix = "contact.cache")
+@Getter
+@Setter
+public class CacheProperties {
+
+    /**
+     * Cache the results of contact list and search queries.
+     */
+    private boolean queryCache = false;
+    
+    /**
+     * Settings of regions that are not listed in regions.
+     */
+    private Region defaults = new Region();
+    
+    /**
+     * Settings per region, keyed by region name.
+     */
+    private Map<String, Region> regions = new LinkedHashMap<>();
+    
+    public Region region(String name) {
+        return regions.getOrDefault(name, defaults);
+    }
+    
+    @Getter
+    @Setter
+    public static class Region {
+        
+        /**
+         * Maximum number of entries kept on heap.
+         */
+        private long maxEntries = 10000;
+        
+        /**
+         * How long an entry lives after it was written.
+         */
+        private Duration timeToLive = Duration.ofMinutes(10);
+    }
+}
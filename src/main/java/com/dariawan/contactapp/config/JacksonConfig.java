@@ -0,0 +1,126 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.config;
+
+import com.dariawan.contactapp.domain.Contact;
+import com.dariawan.contactapp.domain.ContactFields;
+import com.fasterxml.aalto.stax.InputFactoryImpl;
+import com.fasterxml.aalto.stax.OutputFactoryImpl;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.dataformat.xml.XmlFactory;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import java.io.ByteArrayInputStream;
+import javax.xml.stream.XMLInputFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.xml.MappingJackson2XmlHttpMessageConverter;
+
+/**
+ * Faster object mappers for every message converter. Afterburner replaces
+ * the reflective property access of Jackson's serializers and deserializers
+ * with generated bytecode; Spring Boot registers the module with every
+ * mapper its Jackson2ObjectMapperBuilder configures. On Java 16 and later it
+ * needs --add-opens java.base/java.lang=ALL-UNNAMED (see README), without
+ * it a warning is logged at startup. XML is read and written
+ * with the Aalto StAX implementation instead of Woodstox. Every mapper also
+ * knows the property filter of the fields request parameter, see
+ * {@link ContactFields}.
+ */
+@Configuration
+public class JacksonConfig {
+    
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    
+    @Bean
+    public Module afterburnerModule() {
+        if (!canDefineClasses()) {
+            logger.warn("Afterburner cannot add its generated classes to the application's class loader "
+                    + "and falls back to reflection; run with --add-opens java.base/java.lang=ALL-UNNAMED");
+        }
+        return new AfterburnerModule();
+    }
+    
+    /**
+     * Whether Afterburner can define its generated accessors in the class
+     * loader of the classes they access, through ClassLoader.defineClass,
+     * which is closed to it from Java 16 on unless java.lang is opened.
+     */
+    private static boolean canDefineClasses() {
+        try {
+            ClassLoader.class.getDeclaredMethod("defineClass", String.class, byte[].class, int.class, int.class)
+                    .setAccessible(true);
+            return true;
+        } catch (NoSuchMethodException | RuntimeException ex) {
+            return false;
+        }
+    }
+    
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer contactFieldsCustomizer() {
+        return builder -> builder
+                .mixIn(Contact.class, ContactFields.FilterMixIn.class)
+                .filters(ContactFields.ALL_FIELDS);
+    }
+    
+    @Bean
+    public MappingJackson2XmlHttpMessageConverter xmlHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        XmlMapper xmlMapper = new XmlMapper(xmlFactory());
+        builder.configure(xmlMapper);
+        return new MappingJackson2XmlHttpMessageConverter(xmlMapper);
+    }
+    
+    /**
+     * XML factory on the Aalto StAX implementation. Request bodies are
+     * untrusted, so like the factory Jackson2ObjectMapperBuilder would create
+     * it neither processes DTDs nor resolves external entities: a document
+     * using an entity it declares is rejected.
+     */
+    public static XmlFactory xmlFactory() {
+        InputFactoryImpl inputFactory = new InputFactoryImpl();
+        inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        inputFactory.setXMLResolver((publicId, systemId, base, namespace) -> new ByteArrayInputStream(new byte[0]));
+        return new XmlFactory(inputFactory, new OutputFactoryImpl());
+    }
+}
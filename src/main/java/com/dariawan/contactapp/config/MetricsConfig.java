@@ -0,0 +1,109 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.config;
+
+import com.dariawan.contactapp.concurrent.DeferredExecutor;
+import com.dariawan.contactapp.concurrent.SingleFlight;
+import com.dariawan.contactapp.io.ContactResponseCache;
+import com.dariawan.contactapp.metrics.ServiceTimingAspect;
+import com.dariawan.contactapp.service.ContactService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Metrics of our own on top of the ones Spring Boot binds (requests, HikariCP
+ * pools, Hibernate, JVM): ContactService method timers, the request
+ * coalescing counters, the queue of the database executor and the hits of
+ * the response cache. Everything is scraped at GET /actuator/prometheus.
+ */
+@Configuration
+public class MetricsConfig {
+    
+    /**
+     * Static, so that advising a ContactService call never needs this
+     * configuration, which depends on ContactService, to exist.
+     */
+    @Bean
+    public static ServiceTimingAspect serviceTimingAspect(MeterRegistry registry) {
+        return new ServiceTimingAspect(registry);
+    }
+    
+    /**
+     * Bound once both exist rather than as a MeterBinder, which the registry
+     * would create, and with it ContactService and the datasource, while the
+     * registry itself is still being created. The counters are read from the
+     * SingleFlight instances, so scrapes are not timed as ContactService calls.
+     */
+    @Autowired
+    public void bindCoalescingMetrics(MeterRegistry registry, ContactService contactService) {
+        for (SingleFlight<?, ?> flight : contactService.getFlights()) {
+            FunctionCounter.builder("contact.coalescing.executions", flight, SingleFlight::getExecutions)
+                    .description("Queries run")
+                    .tag("operation", flight.getName())
+                    .register(registry);
+            FunctionCounter.builder("contact.coalescing.coalesced", flight, SingleFlight::getCoalesced)
+                    .description("Calls that shared the result of a concurrent identical call")
+                    .tag("operation", flight.getName())
+                    .register(registry);
+        }
+    }
+    
+    @Autowired
+    public void bindDeferredExecutorMetrics(MeterRegistry registry, DeferredExecutor deferredExecutor) {
+        Gauge.builder("contact.async.queued", deferredExecutor, DeferredExecutor::getQueueSize)
+                .description("Requests waiting for a database executor thread")
+                .register(registry);
+    }
+    
+    @Autowired
+    public void bindResponseCacheMetrics(MeterRegistry registry, ContactResponseCache responseCache) {
+        FunctionCounter.builder("contact.response.cache.requests", responseCache, ContactResponseCache::getHits)
+                .description("Contacts served already encoded")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("contact.response.cache.requests", responseCache, ContactResponseCache::getMisses)
+                .description("Contacts that had to be encoded")
+                .tag("result", "miss")
+                .register(registry);
+    }
+}
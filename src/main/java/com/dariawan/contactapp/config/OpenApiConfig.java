@@ -41,10 +41,18 @@ package com.dariawan.contactapp.config;
 import io.swagger.v3.oas.models.Components;
 import io.swagger.v3.oas.models.OpenAPI;
 import io.swagger.v3.oas.models.info.Info;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+/**
+ * springdoc scans the controllers for this document only with
+ * springdoc.api-docs.enabled=true (the dev profile). Otherwise the build
+ * generates it and {@link com.dariawan.contactapp.controller.OpenApiDocumentController}
+ * serves that copy, see {@link OpenApiProperties}.
+ */
 @Configuration
+@EnableConfigurationProperties(OpenApiProperties.class)
 public class OpenApiConfig {
 
     @Bean
@@ -52,6 +60,8 @@ public class OpenApiConfig {
         return new OpenAPI()
                 .components(new Components())
                 .info(new Info().title("Contact Application API").description(
-                        "This is a sample Spring Boot RESTful service using springdoc-openapi and OpenAPI 3."));
+                        "This is a sample Spring Boot RESTful service using springdoc-openapi and OpenAPI 3. "
+                        + "Besides JSON and XML, contacts are exchanged as Smile, CBOR and Protobuf; "
+                        + "the Protobuf messages are defined in /contact.proto."));
     }
 }
@@ -0,0 +1,72 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Cache of encoded GET /api/contacts/{contactId} responses, bound from
+ * contact.response-cache.* in application.properties.
+ */
+@ConfigurationProperties(prefix = "contact.response-cache")
+@Getter
+@Setter
+public class ResponseCacheProperties {
+
+    /**
+     * Whether encoded contacts are cached.
+     */
+    private boolean enabled = true;
+    
+    /**
+     * Off-heap memory for the encoded contacts, the least recently used are
+     * evicted beyond it. Counts against -XX:MaxDirectMemorySize.
+     */
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+    
+    /**
+     * How long an entry lives after it was written. Bounds how long another
+     * instance keeps serving a contact that was changed through this one.
+     */
+    private Duration timeToLive = Duration.ofMinutes(10);
+}
@@ -0,0 +1,105 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.config;
+
+import com.dariawan.contactapp.concurrent.VirtualThreads;
+import java.util.concurrent.ExecutorService;
+import org.apache.coyote.AbstractProtocol;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * With contact.threads.virtual, Tomcat handles every request, and Spring MVC
+ * streams every async response, on a virtual thread of its own (Java 21 and
+ * later). ContactService then runs on the request's virtual thread, see
+ * AsyncConfig.
+ * <p>
+ * The PostgreSQL driver runs queries inside synchronized blocks, which pin
+ * the virtual thread to its carrier thread until the query returns. With the
+ * default of one carrier per processor, as many queries in flight would stop
+ * every other virtual thread, request parsing included. The scheduler is
+ * therefore given a carrier for every pooled connection, of the primary and
+ * each replica, plus one per processor for the rest of the work; the pools
+ * then limit concurrent database work, as waiting for a connection does not
+ * pin. An explicit -Djdk.virtualThreadScheduler.parallelism is kept.
+ */
+@Configuration
+@ConditionalOnProperty(name = "contact.threads.virtual", havingValue = "true")
+// DataSourceConfig, which registers them too, is only active with replicas
+@EnableConfigurationProperties(ReplicaProperties.class)
+public class VirtualThreadConfig implements WebMvcConfigurer, DisposableBean {
+    
+    // not a bean, an Executor bean would replace Spring Boot's task executor
+    private final ExecutorService executor;
+    
+    public VirtualThreadConfig(ReplicaProperties replicaProperties, 
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        int connections = poolSize * (1 + replicaProperties.getReplicas().size());
+        VirtualThreads.setSchedulerParallelism(connections + Runtime.getRuntime().availableProcessors());
+        this.executor = VirtualThreads.newThreadPerTaskExecutor("virtual-");
+    }
+    
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadTomcatCustomizer() {
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            if (connector.getProtocolHandler() instanceof AbstractProtocol) {
+                ((AbstractProtocol<?>) connector.getProtocolHandler()).setExecutor(executor);
+            }
+        });
+    }
+    
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
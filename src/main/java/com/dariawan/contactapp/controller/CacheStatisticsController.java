@@ -0,0 +1,93 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.controller;
+
+import com.dariawan.contactapp.domain.CacheRegionStatistics;
+import com.dariawan.contactapp.domain.CoalescingStatistics;
+import com.dariawan.contactapp.service.CacheStatisticsService;
+import com.dariawan.contactapp.service.ContactService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
+import javax.management.JMException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/api")
+@Tag(name = "cache", description = "the second-level cache API")
+public class CacheStatisticsController {
+    
+    @Autowired
+    private CacheStatisticsService cacheStatisticsService;
+    
+    @Autowired
+    private ContactService contactService;
+    
+    @Operation(summary = "Second-level cache statistics", 
+            description = "Hit, miss and eviction counters per cache region since startup", tags = { "cache" })
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "successful operation", 
+                content = @Content(array = @ArraySchema(schema = @Schema(implementation = CacheRegionStatistics.class)))) })
+    @GetMapping(value = "/cache/statistics", produces = { "application/json", "application/xml", 
+                    "application/x-jackson-smile", "application/cbor" })
+    public ResponseEntity<List<CacheRegionStatistics>> findAll() throws JMException {
+        return ResponseEntity.ok(cacheStatisticsService.findAll());
+    }
+    
+    @Operation(summary = "Request coalescing statistics", 
+            description = "Per coalesced operation, the queries run and the calls that shared "
+                    + "the result of a concurrent identical call, since startup", tags = { "cache" })
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "successful operation", 
+                content = @Content(array = @ArraySchema(schema = @Schema(implementation = CoalescingStatistics.class)))) })
+    @GetMapping(value = "/cache/coalescing", produces = { "application/json", "application/xml", 
+                    "application/x-jackson-smile", "application/cbor" })
+    public ResponseEntity<List<CoalescingStatistics>> findCoalescing() {
+        return ResponseEntity.ok(contactService.getCoalescingStatistics());
+    }
+}
@@ -38,12 +38,26 @@
  */
 package com.dariawan.contactapp.controller;
 
+import com.dariawan.contactapp.concurrent.DeferredExecutor;
 import com.dariawan.contactapp.domain.Address;
 import com.dariawan.contactapp.domain.Contact;
+import com.dariawan.contactapp.domain.ContactBatchResult;
+import com.dariawan.contactapp.domain.ContactCursor;
+import com.dariawan.contactapp.domain.ContactFields;
+import com.dariawan.contactapp.domain.ContactImportResult;
+import com.dariawan.contactapp.domain.ContactLookupResult;
 import com.dariawan.contactapp.exception.BadResourceException;
+import com.dariawan.contactapp.exception.PreconditionFailedException;
 import com.dariawan.contactapp.exception.ResourceAlreadyExistsException;
 import com.dariawan.contactapp.exception.ResourceNotFoundException;
+import com.dariawan.contactapp.io.ContactFormat;
+import com.dariawan.contactapp.io.ContactRecordReader;
+import com.dariawan.contactapp.io.ContactResponseCache;
+import com.dariawan.contactapp.io.ContactResponseCache.CachedResponse;
 import com.dariawan.contactapp.service.ContactService;
+import com.dariawan.contactapp.specification.SearchMode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
@@ -52,15 +66,29 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
-import java.net.URISyntaxException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 import javax.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.GenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -69,9 +97,15 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
 
 @RestController
 @RequestMapping("/api")
@@ -82,40 +116,168 @@ public class ContactController {
     
     private final int ROW_PER_PAGE = 5;
     
+    private static final String HEADER_HAS_NEXT = "X-Has-Next";
+    
+    private static final String HEADER_TOTAL_COUNT = "X-Total-Count";
+    
     @Autowired
     private ContactService contactService;
     
-    @Operation(summary = "Find Contacts by name", description = "Name search by %name% format", tags = { "contact" })
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private DeferredExecutor deferredExecutor;
+    
+    @Autowired
+    private ContactResponseCache responseCache;
+    
+    @Autowired
+    private RequestMappingHandlerAdapter handlerAdapter;
+    
+    @Operation(summary = "Find Contacts by name", description = "Case-insensitive name search, "
+            + "by name% (PREFIX) or %name% (SUBSTRING, default) format. "
+            + "Pass after (empty for the first page) to switch to keyset pagination; "
+            + "the next page is then advertised in the Link header. "
+            + "Pass fields to only select and return those properties.", tags = { "contact" })
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "successful operation", 
-                content = @Content(array = @ArraySchema(schema = @Schema(implementation = Contact.class)))) })	
-    @GetMapping(value = "/contacts", produces = { "application/json", "application/xml" })
-    public ResponseEntity<List<Contact>> findAll(
+                content = @Content(array = @ArraySchema(schema = @Schema(implementation = Contact.class)))),
+        @ApiResponse(responseCode = "400", description = "Invalid cursor or fields") })	
+    @GetMapping(value = "/contacts", produces = { "application/json", "application/xml", 
+                    "application/x-jackson-smile", "application/cbor", "application/x-protobuf" })
+    public DeferredResult<ResponseEntity<Object>> findAll(
             @Parameter(description="Page number, default is 1") @RequestParam(value="page", defaultValue="1") int pageNumber,
-            @Parameter(description="Name of the contact for search.") @RequestParam(required=false) String name) {
-        if (StringUtils.isEmpty(name)) {
-            return ResponseEntity.ok(contactService.findAll(pageNumber, ROW_PER_PAGE));
-        }
-        else {
-            return ResponseEntity.ok(contactService.findAllByName(name, pageNumber, ROW_PER_PAGE));
-        }
+            @Parameter(description="Name of the contact for search.") @RequestParam(required=false) String name,
+            @Parameter(description="How name is matched, default is SUBSTRING.") 
+            @RequestParam(defaultValue="SUBSTRING") SearchMode mode,
+            @Parameter(description="Cursor returned in the previous page's next link.") @RequestParam(required=false) String after,
+            @Parameter(description="Return the (cached, possibly approximate) total in the X-Total-Count header.") 
+            @RequestParam(defaultValue="false") boolean includeTotal,
+            @Parameter(description="Comma separated properties to return, default is all.") 
+            @RequestParam(required=false) String fields) {
+        // only known on the request thread
+        UriComponentsBuilder currentRequest = after != null ? ServletUriComponentsBuilder.fromCurrentRequest() : null;
+        return deferred(() -> {
+            Slice<Contact> slice;
+            List<String> properties;
+            try {
+                properties = ContactFields.parse(fields);
+                if (after != null) {
+                    ContactCursor cursor = after.isEmpty() ? null : ContactCursor.decode(after);
+                    slice = contactService.findAllAfter(name, mode, cursor, ROW_PER_PAGE, properties);
+                }
+                else if (StringUtils.isEmpty(name)) {
+                    slice = contactService.findSlice(pageNumber, ROW_PER_PAGE, properties);
+                }
+                else {
+                    slice = contactService.findSliceByName(name, mode, pageNumber, ROW_PER_PAGE, properties);
+                }
+            } catch (BadResourceException ex) {
+                // log exception first, then return Bad Request (400)
+                logger.error(ex.getMessage());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+            }
+        
+            HttpHeaders headers = new HttpHeaders();
+            headers.add(HEADER_HAS_NEXT, String.valueOf(slice.hasNext()));
+            if (after != null && slice.hasNext()) {
+                List<Contact> contacts = slice.getContent();
+                String next = currentRequest
+                        .replaceQueryParam("page")
+                        .replaceQueryParam("after", ContactCursor.of(contacts.get(contacts.size() - 1)).encode())
+                        .toUriString();
+                headers.add(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+            }
+            if (includeTotal) {
+                headers.add(HEADER_TOTAL_COUNT, String.valueOf(contactService.countForListing(name, mode)));
+            }
+            return ResponseEntity.ok().headers(headers).body(withFields(slice.getContent(), properties));
+        });
     }
 
-    @Operation(summary = "Find contact by ID", description = "Returns a single contact", tags = { "contact" })
+    @Operation(summary = "Export contacts", description = "Streams every contact matching name "
+            + "(all contacts when name is empty) as NDJSON, CSV or a JSON array, in id order", tags = { "contact" })
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "successful operation") })
+    @GetMapping(value = "/contacts/export", produces = { "application/x-ndjson", "text/csv", "application/json" })
+    public ResponseEntity<StreamingResponseBody> exportContacts(
+            @Parameter(description="Output format, default is NDJSON.") 
+            @RequestParam(defaultValue="NDJSON") ContactFormat format,
+            @Parameter(description="Name of the contact for search.") @RequestParam(required=false) String name,
+            @Parameter(description="How name is matched, default is SUBSTRING.") 
+            @RequestParam(defaultValue="SUBSTRING") SearchMode mode) {
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter writer = format.writer(objectMapper, out)) {
+                contactService.exportAll(name, mode, contact -> {
+                    try {
+                        writer.write(contact);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(format.getMediaType()).body(body);
+    }
+
+    @Operation(summary = "Find contact by ID", description = "Returns a single contact. "
+            + "The ETag is the contact's version; with a matching If-None-Match 304 is returned. "
+            + "Pass fields to only select and return those properties. "
+            + "Whole contacts are served from a cache of encoded responses.", tags = { "contact" })
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "successful operation",
                 content = @Content(schema = @Schema(implementation = Contact.class))),
+        @ApiResponse(responseCode = "304", description = "Contact not modified"),
+        @ApiResponse(responseCode = "400", description = "Invalid fields"),
         @ApiResponse(responseCode = "404", description = "Contact not found") })
-    @GetMapping(value = "/contacts/{contactId}", produces = { "application/json", "application/xml" })
-    public ResponseEntity<Contact> findContactById(
+    @GetMapping(value = "/contacts/{contactId}", produces = { "application/json", "application/xml", 
+                    "application/x-jackson-smile", "application/cbor", "application/x-protobuf" })
+    public DeferredResult<ResponseEntity<Object>> findContactById(
             @Parameter(description="Id of the contact to be obtained. Cannot be empty.", required=true)
-            @PathVariable long contactId) {
-        try {
-            Contact contact = contactService.findById(contactId);
-            return ResponseEntity.ok(contact);  // return 200, with json body
-        } catch (ResourceNotFoundException ex) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null); // return 404, with null body
+            @PathVariable long contactId,
+            @Parameter(description="Comma separated properties to return, default is all.") 
+            @RequestParam(required=false) String fields,
+            @Parameter(hidden=true) @RequestHeader(value=HttpHeaders.ACCEPT, required=false) String accept) {
+        MediaType mediaType = StringUtils.isEmpty(fields) ? cacheableMediaType(accept) : null;
+        if (mediaType != null) {
+            // entries are checked against the version in the second-level cache, see findCachedVersion
+            CachedResponse cached = responseCache.get(contactId, mediaType, 
+                    contactService.findCachedVersion(contactId));
+            if (cached != null) {
+                // already encoded, answered right away without the database executor
+                DeferredResult<ResponseEntity<Object>> result = new DeferredResult<>();
+                result.setResult(encoded(mediaType, cached.getVersion(), cached.getBody()));
+                return result;
+            }
         }
+        return deferred(() -> {
+            try {
+                if (mediaType != null) {
+                    long stamp = responseCache.stamp(contactId);
+                    Contact contact = contactService.findById(contactId);
+                    byte[] body = encode(contact, mediaType);
+                    // only current contacts are shared, not one read from a lagging replica
+                    if (contact.getVersion().equals(contactService.findCachedVersion(contactId))) {
+                        responseCache.put(contactId, mediaType, contact.getVersion(), body, stamp);
+                    }
+                    return encoded(mediaType, contact.getVersion(), body);
+                }
+                List<String> properties = ContactFields.parse(fields);
+                Contact contact = contactService.findById(contactId, properties);
+                // answered with 304 and no body when If-None-Match matches the ETag
+                return ResponseEntity.ok().eTag(eTag(contact.getVersion()))
+                        .body(withFields(contact, properties));  // return 200, with json body
+            } catch (ResourceNotFoundException ex) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null); // return 404, with null body
+            } catch (BadResourceException ex) {
+                // log exception first, then return Bad Request (400)
+                logger.error(ex.getMessage());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
     }
     
     @Operation(summary = "Add a new contact", description = "", tags = { "contact" })
@@ -124,24 +286,99 @@ public class ContactController {
                 content = @Content(schema = @Schema(implementation = Contact.class))), 
         @ApiResponse(responseCode = "400", description = "Invalid input"), 
         @ApiResponse(responseCode = "409", description = "Contact already exists") })	
-    @PostMapping(value = "/contacts", consumes = { "application/json", "application/xml" })
-    public ResponseEntity<Contact> addContact(
+    @PostMapping(value = "/contacts", consumes = { "application/json", "application/xml", 
+                    "application/x-jackson-smile", "application/cbor", "application/x-protobuf" })
+    public DeferredResult<ResponseEntity<Contact>> addContact(
             @Parameter(description="Contact to add. Cannot null or empty.", 
                     required=true, schema=@Schema(implementation = Contact.class))
-            @Valid @RequestBody Contact contact) 
-            throws URISyntaxException {
-        try {
-            Contact newContact = contactService.save(contact);
-            return ResponseEntity.created(new URI("/api/contacts/" + newContact.getId()))
-                    .body(contact);
-        } catch (ResourceAlreadyExistsException ex) {
-            // log exception first, then return Conflict (409)
-            logger.error(ex.getMessage());
-            return ResponseEntity.status(HttpStatus.CONFLICT).build();
-        } catch (BadResourceException ex) {
-            // log exception first, then return Bad Request (400)
-            logger.error(ex.getMessage());
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+            @Valid @RequestBody Contact contact) {
+        return deferred(() -> {
+            try {
+                Contact newContact = contactService.save(contact);
+                return ResponseEntity.created(URI.create("/api/contacts/" + newContact.getId()))
+                        .body(contact);
+            } catch (ResourceAlreadyExistsException ex) {
+                // log exception first, then return Conflict (409)
+                logger.error(ex.getMessage());
+                return ResponseEntity.status(HttpStatus.CONFLICT).build();
+            } catch (BadResourceException ex) {
+                // log exception first, then return Bad Request (400)
+                logger.error(ex.getMessage());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+            }
+        });
+    }
+    
+    @Operation(summary = "Add many contacts at once", 
+            description = "All contacts are validated first; if any is invalid none is created", tags = { "contact" })
+    @ApiResponses(value = { 
+        @ApiResponse(responseCode = "201", description = "Contacts created",
+                content = @Content(array = @ArraySchema(schema = @Schema(implementation = ContactBatchResult.class)))), 
+        @ApiResponse(responseCode = "400", description = "Invalid input",
+                content = @Content(array = @ArraySchema(schema = @Schema(implementation = ContactBatchResult.class)))) })
+    @PostMapping(value = "/contacts/batch", consumes = { "application/json", "application/xml", 
+                    "application/x-jackson-smile", "application/cbor", "application/x-protobuf" },
+            produces = { "application/json", "application/xml", 
+                    "application/x-jackson-smile", "application/cbor", "application/x-protobuf" })
+    public DeferredResult<ResponseEntity<List<ContactBatchResult>>> addContacts(
+            @Parameter(description="Contacts to add. Cannot null or empty.", required=true, 
+                    array=@ArraySchema(schema=@Schema(implementation = Contact.class)))
+            @RequestBody List<Contact> contacts) {
+        return deferred(() -> {
+            try {
+                List<ContactBatchResult> results = contactService.saveAll(contacts);
+                boolean created = results.stream()
+                        .allMatch(r -> r.getStatus() == ContactBatchResult.Status.CREATED);
+                return ResponseEntity.status(created ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST)
+                        .body(results);
+            } catch (BadResourceException ex) {
+                // log exception first, then return Bad Request (400)
+                logger.error(ex.getMessage());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+            }
+        });
+    }
+    
+    @Operation(summary = "Find contacts by ids", description = "Looks up many contacts at once. "
+            + "Contacts are returned in the order of their ids, unknown ids are listed as missing.", 
+            tags = { "contact" })
+    @ApiResponses(value = { 
+        @ApiResponse(responseCode = "200", description = "successful operation",
+                content = @Content(schema = @Schema(implementation = ContactLookupResult.class))), 
+        @ApiResponse(responseCode = "400", description = "No ids or too many ids") })
+    @PostMapping(value = "/contacts/lookup", consumes = { "application/json", "application/xml", 
+                    "application/x-jackson-smile", "application/cbor", "application/x-protobuf" },
+            produces = { "application/json", "application/xml", 
+                    "application/x-jackson-smile", "application/cbor", "application/x-protobuf" })
+    public DeferredResult<ResponseEntity<ContactLookupResult>> lookupContacts(
+            @Parameter(description="Ids of the contacts to find. Cannot null or empty.", required=true, 
+                    array=@ArraySchema(schema=@Schema(implementation = Long.class)))
+            @RequestBody List<Long> ids) {
+        return deferred(() -> {
+            try {
+                return ResponseEntity.ok(contactService.lookup(ids));
+            } catch (BadResourceException ex) {
+                // log exception first, then return Bad Request (400)
+                logger.error(ex.getMessage());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+            }
+        });
+    }
+    
+    @Operation(summary = "Import contacts", description = "Reads NDJSON or CSV (with header row) "
+            + "record by record and creates a contact for each valid record, committing in chunks. "
+            + "Ids in the file are ignored.", tags = { "contact" })
+    @ApiResponses(value = { 
+        @ApiResponse(responseCode = "200", description = "Import finished, see the summary for rejected lines",
+                content = @Content(schema = @Schema(implementation = ContactImportResult.class))) })
+    @PostMapping(value = "/contacts/import", consumes = { "application/x-ndjson", "text/csv" },
+            produces = { "application/json", "application/xml", 
+                    "application/x-jackson-smile", "application/cbor", "application/x-protobuf" })
+    public ResponseEntity<ContactImportResult> importContacts(
+            @Parameter(hidden=true) @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            @Parameter(hidden=true) InputStream body) throws IOException {
+        try (ContactRecordReader records = ContactFormat.of(contentType).reader(objectMapper, body)) {
+            return ResponseEntity.ok(contactService.importAll(records));
         }
     }
     
@@ -150,67 +387,255 @@ public class ContactController {
         @ApiResponse(responseCode = "200", description = "successful operation"),
         @ApiResponse(responseCode = "400", description = "Invalid ID supplied"),
         @ApiResponse(responseCode = "404", description = "Contact not found"),
-        @ApiResponse(responseCode = "405", description = "Validation exception") })
-    @PutMapping(value = "/contacts/{contactId}", consumes = { "application/json", "application/xml" })
-    public ResponseEntity<Void> updateContact(
+        @ApiResponse(responseCode = "405", description = "Validation exception"),
+        @ApiResponse(responseCode = "412", description = "Contact has been modified") })
+    @PutMapping(value = "/contacts/{contactId}", consumes = { "application/json", "application/xml", 
+                    "application/x-jackson-smile", "application/cbor", "application/x-protobuf" })
+    public DeferredResult<ResponseEntity<Void>> updateContact(
             @Parameter(description="Id of the contact to be update. Cannot be empty.", 
                     required=true)
             @PathVariable long contactId,
+            @Parameter(description="ETag of the contact as last read, to reject lost updates.")
+            @RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch,
             @Parameter(description="Contact to update. Cannot null or empty.", 
                     required=true, schema=@Schema(implementation = Contact.class))
             @Valid @RequestBody Contact contact) {
-        try {
-            contact.setId(contactId);
-            contactService.update(contact);
-            return ResponseEntity.ok().build();
-        } catch (ResourceNotFoundException ex) {
-            // log exception first, then return Not Found (404)
-            logger.error(ex.getMessage());
-            return ResponseEntity.notFound().build();
-        } catch (BadResourceException ex) {
-            // log exception first, then return Bad Request (400)
-            logger.error(ex.getMessage());
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
-        }
+        return deferred(() -> {
+            try {
+                contact.setId(contactId);
+                if (ifMatch != null) {
+                    contact.setVersion(ifMatchVersion(ifMatch));
+                }
+                contactService.update(contact);
+                return ResponseEntity.ok().build();
+            } catch (PreconditionFailedException ex) {
+                // log exception first, then return Precondition Failed (412)
+                logger.error(ex.getMessage());
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            } catch (ResourceNotFoundException ex) {
+                // log exception first, then return Not Found (404)
+                logger.error(ex.getMessage());
+                return ResponseEntity.notFound().build();
+            } catch (BadResourceException ex) {
+                // log exception first, then return Bad Request (400)
+                logger.error(ex.getMessage());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+            }
+        });
     }
     
     @Operation(summary = "Update an existing contact's address", description = "", tags = { "contact" })
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "successful operation"),
-        @ApiResponse(responseCode = "404", description = "Contact not found") })
+        @ApiResponse(responseCode = "400", description = "Invalid address"),
+        @ApiResponse(responseCode = "404", description = "Contact not found"),
+        @ApiResponse(responseCode = "412", description = "Contact has been modified") })
     @PatchMapping("/contacts/{contactId}")
-    public ResponseEntity<Void> updateAddress(
+    public DeferredResult<ResponseEntity<Void>> updateAddress(
             @Parameter(description="Id of the contact to be update. Cannot be empty.",
                     required=true)
             @PathVariable long contactId,
+            @Parameter(description="ETag of the contact as last read, to reject lost updates.")
+            @RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch,
             @Parameter(description="Contact's address to update.",
                     required=true, schema=@Schema(implementation = Address.class))
             @RequestBody Address address) {
-        try {
-            contactService.updateAddress(contactId, address);
-            return ResponseEntity.ok().build();
-        } catch (ResourceNotFoundException ex) {
-            // log exception first, then return Not Found (404)
-            logger.error(ex.getMessage());
-            return ResponseEntity.notFound().build();
-        }
+        return deferred(() -> {
+            try {
+                contactService.updateAddress(contactId, address, ifMatchVersion(ifMatch));
+                return ResponseEntity.ok().build();
+            } catch (PreconditionFailedException ex) {
+                // log exception first, then return Precondition Failed (412)
+                logger.error(ex.getMessage());
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            } catch (ResourceNotFoundException ex) {
+                // log exception first, then return Not Found (404)
+                logger.error(ex.getMessage());
+                return ResponseEntity.notFound().build();
+            } catch (BadResourceException ex) {
+                // log exception first, then return Bad Request (400)
+                logger.error(ex.getMessage());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+            }
+        });
+    }
+    
+    @Operation(summary = "Update fields of an existing contact", 
+            description = "JSON Merge Patch (RFC 7396): only the fields present in the body are "
+                    + "updated, a null value clears the field.", tags = { "contact" })
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "successful operation"),
+        @ApiResponse(responseCode = "400", description = "Invalid or unknown field"),
+        @ApiResponse(responseCode = "404", description = "Contact not found"),
+        @ApiResponse(responseCode = "412", description = "Contact has been modified") })
+    @PatchMapping(value = "/contacts/{contactId}", consumes = "application/merge-patch+json")
+    public DeferredResult<ResponseEntity<List<String>>> patchContact(
+            @Parameter(description="Id of the contact to be update. Cannot be empty.",
+                    required=true)
+            @PathVariable long contactId,
+            @Parameter(description="ETag of the contact as last read, to reject lost updates.")
+            @RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch,
+            @Parameter(description="Fields of the contact to update.", required=true)
+            @RequestBody Map<String, Object> patch) {
+        return deferred(() -> {
+            try {
+                contactService.patch(contactId, patch, ifMatchVersion(ifMatch));
+                return ResponseEntity.ok().build();
+            } catch (PreconditionFailedException ex) {
+                // log exception first, then return Precondition Failed (412)
+                logger.error(ex.getMessage());
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            } catch (ResourceNotFoundException ex) {
+                // log exception first, then return Not Found (404)
+                logger.error(ex.getMessage());
+                return ResponseEntity.notFound().build();
+            } catch (BadResourceException ex) {
+                // log exception first, then return Bad Request (400) with the errors
+                logger.error(ex.getMessage());
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getErrorMessages());
+            }
+        });
     }
     
     @Operation(summary = "Deletes a contact", description = "", tags = { "contact" })
     @ApiResponses(value = { 
         @ApiResponse(responseCode = "200", description = "successful operation"),
-        @ApiResponse(responseCode = "404", description = "Contact not found") })
+        @ApiResponse(responseCode = "404", description = "Contact not found"),
+        @ApiResponse(responseCode = "412", description = "Contact has been modified") })
     @DeleteMapping(path="/contacts/{contactId}")
-    public ResponseEntity<Void> deleteContactById(
+    public DeferredResult<ResponseEntity<Void>> deleteContactById(
             @Parameter(description="Id of the contact to be delete. Cannot be empty.",
                     required=true)
-            @PathVariable long contactId) {
+            @PathVariable long contactId,
+            @Parameter(description="ETag of the contact as last read, to reject lost updates.")
+            @RequestHeader(value=HttpHeaders.IF_MATCH, required=false) String ifMatch) {
+        return deferred(() -> {
+            try {
+                contactService.deleteById(contactId, ifMatchVersion(ifMatch));
+                return ResponseEntity.ok().build();
+            } catch (PreconditionFailedException ex) {
+                logger.error(ex.getMessage());
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            } catch (ResourceNotFoundException ex) {
+                logger.error(ex.getMessage());
+                return ResponseEntity.notFound().build();
+            }
+        });
+    }
+    
+    /**
+     * Runs the database work of a request off the request thread, answering
+     * 503 when too many requests are waiting or it does not start in time.
+     */
+    private <T> DeferredResult<ResponseEntity<T>> deferred(Supplier<ResponseEntity<T>> work) {
+        return deferredExecutor.execute(work, ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+    
+    /**
+     * Body writing only the given properties of the contacts in value, value
+     * itself when properties is null (all of them).
+     */
+    private static Object withFields(Object value, List<String> properties) {
+        if (properties == null) {
+            return value;
+        }
+        MappingJacksonValue body = new MappingJacksonValue(value);
+        body.setFilters(ContactFields.filters(properties));
+        return body;
+    }
+    
+    /**
+     * The cached media type a request accepts, the one Spring MVC would
+     * negotiate from the produces list of findContactById; null when it
+     * accepts none of them.
+     */
+    private static MediaType cacheableMediaType(String accept) {
+        List<MediaType> acceptable;
         try {
-            contactService.deleteById(contactId);
-            return ResponseEntity.ok().build();
-        } catch (ResourceNotFoundException ex) {
-            logger.error(ex.getMessage());
-            return ResponseEntity.notFound().build();
+            acceptable = StringUtils.hasText(accept) 
+                    ? MediaType.parseMediaTypes(accept) : Collections.singletonList(MediaType.ALL);
+        } catch (InvalidMediaTypeException ex) {
+            return null;
+        }
+        MediaType.sortBySpecificityAndQuality(acceptable);
+        for (MediaType candidate : acceptable) {
+            for (MediaType mediaType : ContactResponseCache.MEDIA_TYPES) {
+                if (candidate.getQualityValue() > 0 && candidate.includes(mediaType)) {
+                    return mediaType;
+                }
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Encode contact as mediaType with the message converter Spring MVC
+     * would write it with.
+     */
+    @SuppressWarnings("unchecked")
+    private byte[] encode(Contact contact, MediaType mediaType) throws IOException {
+        BufferedOutputMessage message = new BufferedOutputMessage();
+        for (HttpMessageConverter<?> converter : handlerAdapter.getMessageConverters()) {
+            if (converter instanceof GenericHttpMessageConverter) {
+                GenericHttpMessageConverter<Object> generic = (GenericHttpMessageConverter<Object>) converter;
+                if (generic.canWrite(Contact.class, Contact.class, mediaType)) {
+                    generic.write(contact, Contact.class, mediaType, message);
+                    return message.body.toByteArray();
+                }
+            }
+            else if (converter.canWrite(Contact.class, mediaType)) {
+                ((HttpMessageConverter<Object>) converter).write(contact, mediaType, message);
+                return message.body.toByteArray();
+            }
+        }
+        throw new IOException("No message converter writes a contact as " + mediaType);
+    }
+    
+    /**
+     * An encoded contact, written as is by the byte array message converter.
+     */
+    private static ResponseEntity<Object> encoded(MediaType mediaType, long version, byte[] body) {
+        // answered with 304 and no body when If-None-Match matches the ETag
+        return ResponseEntity.ok().contentType(mediaType).eTag(eTag(version)).body(body);
+    }
+    
+    private static String eTag(Long version) {
+        return "\"" + version + "\"";
+    }
+    
+    /**
+     * Version expected by an If-Match header, null when any version will do.
+     * Only a single strong ETag can match since versions are compared exactly.
+     */
+    private static Long ifMatchVersion(String ifMatch) throws PreconditionFailedException {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.valueOf(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException ex) {
+                // not one of our ETags, reported below
+            }
+        }
+        throw new PreconditionFailedException("If-Match " + ifMatch + " does not match any contact version");
+    }
+    
+    private static class BufferedOutputMessage implements HttpOutputMessage {
+        
+        private final HttpHeaders headers = new HttpHeaders();
+        
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+
+        @Override
+        public ByteArrayOutputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
         }
     }
 }
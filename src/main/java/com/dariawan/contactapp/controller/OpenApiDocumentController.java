@@ -0,0 +1,195 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.controller;
+
+import com.dariawan.contactapp.config.OpenApiProperties;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Serves the OpenAPI document the build generated in place of springdoc,
+ * which is switched off with springdoc.api-docs.enabled=false and then
+ * scans nothing. Both documents are read and gzipped once at startup; they
+ * are answered gzipped when Accept-Encoding allows it, with an ETag of the
+ * representation sent (If-None-Match gets 304), and cached for
+ * contact.openapi.max-age.
+ */
+@RestController
+@ConditionalOnProperty(name = "springdoc.api-docs.enabled", havingValue = "false")
+public class OpenApiDocumentController {
+    
+    private static final MediaType YAML = MediaType.valueOf("application/vnd.oai.openapi");
+    
+    private final Document json;
+    
+    private final Document yaml;
+    
+    private final CacheControl cacheControl;
+    
+    public OpenApiDocumentController(OpenApiProperties properties, ResourceLoader resourceLoader) {
+        this.json = new Document(resourceLoader.getResource(properties.getLocation() + "openapi.json"), 
+                MediaType.APPLICATION_JSON);
+        this.yaml = new Document(resourceLoader.getResource(properties.getLocation() + "openapi.yaml"), YAML);
+        this.cacheControl = CacheControl.maxAge(properties.getMaxAge().getSeconds(), 
+                TimeUnit.SECONDS).cachePublic();
+    }
+    
+    @GetMapping(value = "${springdoc.api-docs.path:/v3/api-docs}")
+    public ResponseEntity<byte[]> findJson(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return json.toResponse(acceptsGzip(acceptEncoding), cacheControl);
+    }
+    
+    @GetMapping(value = "${springdoc.api-docs.path:/v3/api-docs}.yaml")
+    public ResponseEntity<byte[]> findYaml(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return yaml.toResponse(acceptsGzip(acceptEncoding), cacheControl);
+    }
+    
+    /**
+     * Whether an Accept-Encoding header allows gzip: listed, or covered by
+     * *, with a quality above 0.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean gzip = null;
+        boolean any = false;
+        for (String coding : StringUtils.tokenizeToStringArray(acceptEncoding, ",")) {
+            String[] parameters = StringUtils.tokenizeToStringArray(coding, ";");
+            if (parameters.length == 0) {
+                continue;
+            }
+            boolean acceptable = quality(parameters) > 0;
+            String name = parameters[0].toLowerCase(Locale.ROOT);
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = acceptable;
+            }
+            else if (name.equals("*")) {
+                any = acceptable;
+            }
+        }
+        return gzip != null ? gzip : any;
+    }
+    
+    private static double quality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].replace(" ", "");
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException ex) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+    
+    private static class Document {
+        
+        private final MediaType mediaType;
+        
+        private final byte[] body;
+        
+        private final byte[] gzipped;
+        
+        private final String eTag;
+        
+        private final String gzippedETag;
+        
+        Document(Resource resource, MediaType mediaType) {
+            if (!resource.exists()) {
+                throw new IllegalStateException(resource.getDescription() + " not found, it is generated by "
+                        + "mvn package; run with springdoc.api-docs.enabled=true (the dev profile) without it");
+            }
+            try (InputStream in = resource.getInputStream()) {
+                this.body = StreamUtils.copyToByteArray(in);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            this.mediaType = mediaType;
+            this.gzipped = gzip(body);
+            String hash = DigestUtils.md5DigestAsHex(body);
+            this.eTag = "\"" + hash + "\"";
+            // other bytes, another strong ETag
+            this.gzippedETag = "\"" + hash + "-gzip\"";
+        }
+        
+        ResponseEntity<byte[]> toResponse(boolean gzip, CacheControl cacheControl) {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(mediaType)
+                    .cacheControl(cacheControl)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (gzip) {
+                return response.eTag(gzippedETag).header(HttpHeaders.CONTENT_ENCODING, "gzip").body(gzipped);
+            }
+            return response.eTag(eTag).body(body);
+        }
+        
+        private static byte[] gzip(byte[] bytes) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(bytes);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.datasource;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Keeps the reads of a client on the primary for a while after a successful
+ * write of that client, so it does not read stale data from a replica that
+ * is lagging behind. Clients are told apart by a request header, or by their
+ * remote address without it.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    
+    private static final int MAX_CLIENTS = 10000;
+    
+    private final long windowMillis;
+    
+    private final String clientHeader;
+    
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public ReadYourWritesFilter(Duration window, String clientHeader) {
+        this.windowMillis = window.toMillis();
+        this.clientHeader = clientHeader;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
+            FilterChain chain) throws ServletException, IOException {
+        String client = client(request);
+        if (isRead(request)) {
+            Long lastWrite = lastWrites.get(client);
+            if (lastWrite != null && System.currentTimeMillis() - lastWrite < windowMillis) {
+                try (ReplicaRoutingDataSource.PrimaryScope scope = ReplicaRoutingDataSource.primaryOnly()) {
+                    chain.doFilter(request, response);
+                }
+                return;
+            }
+            chain.doFilter(request, response);
+            return;
+        }
+        
+        chain.doFilter(request, response);
+        if (request.isAsyncStarted()) {
+            // the status is only known once the response has been completed
+            request.getAsyncContext().addListener(new AsyncListener() {
+                
+                @Override
+                public void onComplete(AsyncEvent event) {
+                    recordWrite(client, response);
+                }
+                
+                @Override
+                public void onTimeout(AsyncEvent event) {
+                }
+                
+                @Override
+                public void onError(AsyncEvent event) {
+                }
+                
+                @Override
+                public void onStartAsync(AsyncEvent event) {
+                }
+            });
+        }
+        else {
+            recordWrite(client, response);
+        }
+    }
+    
+    private void recordWrite(String client, HttpServletResponse response) {
+        if (response.getStatus() < 400) {
+            if (lastWrites.size() >= MAX_CLIENTS) {
+                long expired = System.currentTimeMillis() - windowMillis;
+                lastWrites.values().removeIf(time -> time < expired);
+            }
+            lastWrites.put(client, System.currentTimeMillis());
+        }
+    }
+    
+    private boolean isRead(HttpServletRequest request) {
+        return "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod()) 
+                || "OPTIONS".equals(request.getMethod());
+    }
+    
+    private String client(HttpServletRequest request) {
+        String client = request.getHeader(clientHeader);
+        return StringUtils.isEmpty(client) ? request.getRemoteAddr() : client;
+    }
+}
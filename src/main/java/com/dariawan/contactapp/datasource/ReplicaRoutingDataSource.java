@@ -0,0 +1,252 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Hands out connections of a replica inside read-only transactions and of
+ * the primary otherwise. Replicas are checked in the background and only the
+ * healthy ones are used, round robin; with none healthy reads go to the
+ * primary too. Connections are lazy, so the target is only picked at the
+ * first statement, once the transaction is known to be read-only or not.
+ * <p>
+ * A replica may lag behind, so a session reading from one only reads from
+ * the second-level cache and never puts rows into it: a stale row put there
+ * after the eviction that follows a write would be served to every later
+ * read, even inside {@link #primaryOnly()}. The second-level cache thereby
+ * only holds what was written or read on the primary.
+ */
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements DisposableBean {
+    
+    private static final ThreadLocal<Boolean> PRIMARY_ONLY = new ThreadLocal<>();
+    
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    
+    private final DataSource primary;
+    
+    private final List<Replica> replicas = new ArrayList<>();
+    
+    private final Duration healthCheckInterval;
+    
+    private final AtomicInteger next = new AtomicInteger();
+    
+    private ScheduledExecutorService healthChecks;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration healthCheckInterval) {
+        this.primary = primary;
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.add(new Replica("replica-" + i, replicas.get(i)));
+        }
+        this.healthCheckInterval = healthCheckInterval;
+        setTargetDataSource(new Router());
+    }
+    
+    /**
+     * Take every connection on this thread from the primary, read-only or
+     * not, until the returned scope is closed.
+     */
+    public static PrimaryScope primaryOnly() {
+        Boolean previous = PRIMARY_ONLY.get();
+        PRIMARY_ONLY.set(Boolean.TRUE);
+        return () -> PRIMARY_ONLY.set(previous);
+    }
+    
+    /**
+     * Whether this thread is in a {@link #primaryOnly()} scope.
+     */
+    public static boolean isPrimaryOnly() {
+        return Boolean.TRUE.equals(PRIMARY_ONLY.get());
+    }
+    
+    /**
+     * Whether the replica with the given index passed its last health check.
+     */
+    public boolean isHealthy(int replica) {
+        return replicas.get(replica).healthy;
+    }
+    
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        // replicas start unhealthy, the first check runs right away
+        healthChecks = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "replica-health-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecks.scheduleWithFixedDelay(this::checkReplicas, 0, 
+                healthCheckInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        healthChecks.shutdownNow();
+        for (Replica replica : replicas) {
+            close(replica.dataSource);
+        }
+        close(primary);
+    }
+
+    private Replica route() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() 
+                || isPrimaryOnly()) {
+            return null;
+        }
+        int start = Math.abs(next.getAndIncrement() % replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+    
+    private void checkReplicas() {
+        for (Replica replica : replicas) {
+            String problem = null;
+            try (Connection conn = replica.dataSource.getConnection()) {
+                if (!conn.isValid((int) Math.max(1, healthCheckInterval.getSeconds()))) {
+                    problem = "connection is not valid";
+                }
+            } catch (SQLException | RuntimeException ex) {
+                // a runtime exception would also cancel all further checks
+                problem = ex.getMessage();
+            }
+            if (problem == null && !replica.healthy) {
+                logger.info("{} is up", replica.name);
+                replica.healthy = true;
+            }
+            else if (problem != null) {
+                if (replica.healthy) {
+                    logger.warn("{} is down: {}", replica.name, problem);
+                    replica.healthy = false;
+                }
+                // pooled connections may have outlived the replica, make the next check open new ones
+                if (replica.dataSource instanceof HikariDataSource) {
+                    ((HikariDataSource) replica.dataSource).getHikariPoolMXBean().softEvictConnections();
+                }
+            }
+        }
+    }
+    
+    private void readFromCacheOnly() {
+        for (Object resource : TransactionSynchronizationManager.getResourceMap().values()) {
+            if (resource instanceof EntityManagerHolder) {
+                ((EntityManagerHolder) resource).getEntityManager().unwrap(Session.class)
+                        .setCacheMode(CacheMode.GET);
+            }
+        }
+    }
+    
+    private void markDown(Replica replica, SQLException ex) {
+        logger.warn("{} unavailable: {}", replica.name, ex.getMessage());
+        replica.healthy = false;
+    }
+    
+    private void close(DataSource dataSource) throws Exception {
+        if (dataSource instanceof AutoCloseable) {
+            ((AutoCloseable) dataSource).close();
+        }
+    }
+    
+    private class Router extends AbstractDataSource {
+        
+        @Override
+        public Connection getConnection() throws SQLException {
+            Replica replica = route();
+            if (replica != null) {
+                try {
+                    Connection connection = replica.dataSource.getConnection();
+                    readFromCacheOnly();
+                    return connection;
+                } catch (SQLException ex) {
+                    // mark it down until the next health check, then fall back to the primary
+                    markDown(replica, ex);
+                }
+            }
+            return primary.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return primary.getConnection(username, password);
+        }
+    }
+    
+    public interface PrimaryScope extends AutoCloseable {
+        
+        @Override
+        void close();
+    }
+    
+    private static class Replica {
+        
+        private final String name;
+        
+        private final DataSource dataSource;
+        
+        private volatile boolean healthy;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -45,7 +45,9 @@ import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Pattern;
@@ -67,7 +69,8 @@ public class Contact implements Serializable {
     @Schema(description = "Unique identifier of the Contact.", 
             example = "1", required = true)
     @Id
-    @GeneratedValue(strategy=GenerationType.IDENTITY)
+    @GeneratedValue(strategy=GenerationType.SEQUENCE, generator = "contact_id_seq")
+    @SequenceGenerator(name = "contact_id_seq", sequenceName = "contact_id_seq", allocationSize = 50)
     private Long id;
     
     @Schema(description = "Name of the contact.", 
@@ -111,5 +114,11 @@ public class Contact implements Serializable {
     @Schema(description = "Notes about the contact.", 
             example = "Meet her at Spring Boot Conference", required = false)
     @Column(length = 4000)
-    private String note;    
+    private String note;
+    
+    @Schema(description = "Version of the contact, incremented on every update. "
+            + "Also sent as the ETag of the contact.", 
+            example = "0", required = false)
+    @Version
+    private Long version;
 }
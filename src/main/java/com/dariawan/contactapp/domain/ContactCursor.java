@@ -0,0 +1,90 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.domain;
+
+import com.dariawan.contactapp.exception.BadResourceException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import lombok.Getter;
+
+/**
+ * Opaque position in the (name, id) ordering of contacts, used by keyset
+ * pagination. The token handed out to clients is the URL-safe Base64 form of
+ * "id:name", or of just "id" for a contact without a name.
+ */
+@Getter
+public class ContactCursor {
+
+    private final Long id;
+    
+    private final String name;
+
+    public ContactCursor(Long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+    
+    public static ContactCursor of(Contact contact) {
+        return new ContactCursor(contact.getId(), contact.getName());
+    }
+    
+    public String encode() {
+        String raw = name == null ? String.valueOf(id) : id + ":" + name;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public static ContactCursor decode(String token) throws BadResourceException {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            if (sep > 0) {
+                return new ContactCursor(Long.valueOf(raw.substring(0, sep)), raw.substring(sep + 1));
+            }
+            if (sep < 0) {
+                return new ContactCursor(Long.valueOf(raw), null);
+            }
+        } catch (IllegalArgumentException ex) {
+            // fall through, reported below
+        }
+        BadResourceException exc = new BadResourceException("Invalid cursor: " + token);
+        exc.addErrorMessage("Cursor is malformed");
+        throw exc;
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.domain;
+
+import com.dariawan.contactapp.exception.BadResourceException;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import org.springframework.util.StringUtils;
+
+/**
+ * Sparse fieldsets of Contact, as asked for with the fields request
+ * parameter. Contacts are still written as contacts (&lt;Contact&gt; in XML),
+ * a Jackson property filter leaves out the other properties.
+ */
+public final class ContactFields {
+    
+    /**
+     * Id of the property filter of Contact.
+     */
+    public static final String FILTER = "contactFields";
+    
+    /**
+     * Writes every property of Contact, for mappers not given the fields of
+     * a request.
+     */
+    public static final FilterProvider ALL_FIELDS = new SimpleFilterProvider()
+            .addFilter(FILTER, SimpleBeanPropertyFilter.serializeAll());
+    
+    /**
+     * All properties of Contact, in output order.
+     */
+    public static final List<String> ALL = Collections.unmodifiableList(Arrays.asList(
+            "id", "name", "phone", "email", "address1", "address2", "address3", 
+            "postalCode", "note", "version"));
+
+    private ContactFields() {
+    }
+    
+    /**
+     * Parse a comma separated list of property names into ALL order. Returns
+     * null, meaning all properties, when fields is empty.
+     */
+    public static List<String> parse(String fields) throws BadResourceException {
+        if (StringUtils.isEmpty(fields)) {
+            return null;
+        }
+        List<String> requested = new ArrayList<>();
+        for (String field : StringUtils.commaDelimitedListToSet(fields)) {
+            requested.add(field.trim());
+        }
+        
+        BadResourceException exc = new BadResourceException("Invalid fields: " + fields);
+        for (String field : requested) {
+            if (!ALL.contains(field)) {
+                exc.addErrorMessage(field + ": unknown property");
+            }
+        }
+        if (!exc.getErrorMessages().isEmpty()) {
+            throw exc;
+        }
+        
+        List<String> parsed = new ArrayList<>(ALL);
+        parsed.retainAll(requested);
+        return parsed;
+    }
+    
+    /**
+     * Filters writing only the given properties of Contact, for
+     * MappingJacksonValue or ObjectWriter.with.
+     */
+    public static FilterProvider filters(List<String> fields) {
+        return new SimpleFilterProvider()
+                .addFilter(FILTER, SimpleBeanPropertyFilter.filterOutAllExcept(new HashSet<>(fields)));
+    }
+    
+    /**
+     * Mix-in putting the property filter on Contact, registered with the
+     * mappers of the message converters (see JacksonConfig) together with
+     * ALL_FIELDS as their default filters.
+     */
+    @JsonFilter(FILTER)
+    public interface FilterMixIn {
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.io;
+
+import com.dariawan.contactapp.domain.Contact;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.springframework.http.MediaType;
+
+/**
+ * Line oriented formats used to move many contacts in and out of the
+ * application, one record at a time.
+ */
+public enum ContactFormat {
+    
+    /**
+     * Newline delimited JSON, one contact object per line.
+     */
+    NDJSON("application/x-ndjson"),
+    
+    /**
+     * Comma separated values with a header row. Export writes the columns of
+     * {@link #CSV_SCHEMA}, import maps columns by their header name.
+     */
+    CSV("text/csv"),
+    
+    /**
+     * A JSON array of contact objects, written element by element. Export
+     * only: GET /api/contacts answers pages of a few contacts, whose
+     * X-Has-Next and Link headers need the whole page before the body, so
+     * only export reads lists long enough to be worth streaming.
+     */
+    JSON("application/json");
+    
+    public static final CsvSchema CSV_SCHEMA = CsvSchema.builder()
+            .addColumn("id")
+            .addColumn("name")
+            .addColumn("phone")
+            .addColumn("email")
+            .addColumn("address1")
+            .addColumn("address2")
+            .addColumn("address3")
+            .addColumn("postalCode")
+            .addColumn("note")
+            .addColumn("version")
+            .setUseHeader(true)
+            .build();
+    
+    private static final CsvMapper CSV_MAPPER = new CsvMapper();
+    
+    private final MediaType mediaType;
+
+    private ContactFormat(String mediaType) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+    
+    public static ContactFormat of(MediaType mediaType) {
+        for (ContactFormat format : values()) {
+            if (format.mediaType.isCompatibleWith(mediaType)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported media type: " + mediaType);
+    }
+    
+    /**
+     * Open a reader that parses contacts from in as they are requested.
+     */
+    public ContactRecordReader reader(ObjectMapper objectMapper, InputStream in) throws IOException {
+        if (this == CSV) {
+            return ContactRecordReader.csv(objectMapper, in);
+        }
+        if (this == JSON) {
+            throw new IllegalArgumentException("Contacts cannot be imported from " + mediaType);
+        }
+        return ContactRecordReader.ndjson(objectMapper, in);
+    }
+    
+    /**
+     * Open a writer that encodes contacts to out as they are written. Closing
+     * the writer does not close out.
+     */
+    public SequenceWriter writer(ObjectMapper objectMapper, OutputStream out) throws IOException {
+        if (this == CSV) {
+            return CSV_MAPPER.writerFor(Contact.class)
+                    .with(CSV_SCHEMA)
+                    .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .writeValues(out);
+        }
+        if (this == JSON) {
+            // contacts go out as they are written, the array is never held in memory
+            return objectMapper.writerFor(Contact.class)
+                    .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .writeValuesAsArray(out);
+        }
+        return objectMapper.writerFor(Contact.class)
+                .withRootValueSeparator("\n")
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writeValues(out);
+    }
+}
@@ -0,0 +1,225 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.io;
+
+import com.dariawan.contactapp.domain.Address;
+import com.dariawan.contactapp.domain.Contact;
+import com.dariawan.contactapp.domain.ContactBatchResult;
+import com.dariawan.contactapp.domain.ContactFields;
+import com.dariawan.contactapp.domain.ContactImportResult;
+import com.dariawan.contactapp.domain.ContactLookupResult;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.dataformat.protobuf.ProtobufMapper;
+import com.fasterxml.jackson.dataformat.protobuf.schema.NativeProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchema;
+import com.fasterxml.jackson.dataformat.protobuf.schema.ProtobufSchemaLoader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJacksonValue;
+
+/**
+ * Reads and writes the contact API's payloads as Protocol Buffers, with the
+ * messages of contact.proto. A list is sent as the *List message of its
+ * element type, with the elements in its items field. A MappingJacksonValue
+ * is written with its filters, so contacts with a fields selection (see
+ * ContactFields) only have those fields set.
+ */
+public class ContactProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    
+    public static final MediaType APPLICATION_PROTOBUF = MediaType.valueOf("application/x-protobuf");
+    
+    // also served to clients, as /contact.proto
+    private static final String SCHEMA = "static/contact.proto";
+    
+    private static final String ITEMS = "items";
+    
+    private final ProtobufMapper protobufMapper = new ProtobufMapper();
+    
+    private final ObjectMapper objectMapper;
+    
+    /**
+     * Message of each payload class.
+     */
+    private final Map<Class<?>, ProtobufSchema> messages = new HashMap<>();
+    
+    /**
+     * List message of each list element class.
+     */
+    private final Map<Class<?>, ProtobufSchema> lists = new HashMap<>();
+
+    public ContactProtobufHttpMessageConverter(ObjectMapper objectMapper) {
+        super(APPLICATION_PROTOBUF);
+        this.objectMapper = objectMapper;
+        // properties missing from a message, like Contact's annotations, are not sent
+        protobufMapper.enable(JsonGenerator.Feature.IGNORE_UNKNOWN);
+        protobufMapper.addMixIn(Contact.class, ContactFields.FilterMixIn.class);
+        protobufMapper.setFilterProvider(ContactFields.ALL_FIELDS);
+        
+        NativeProtobufSchema schema;
+        try {
+            schema = ProtobufSchemaLoader.std.parseNative(new ClassPathResource(SCHEMA).getURL());
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Cannot load " + SCHEMA, ex);
+        }
+        messages.put(Contact.class, schema.forType("Contact"));
+        messages.put(Address.class, schema.forType("Address"));
+        messages.put(ContactLookupResult.class, schema.forType("ContactLookupResult"));
+        messages.put(ContactBatchResult.class, schema.forType("ContactBatchResult"));
+        messages.put(ContactImportResult.class, schema.forType("ContactImportResult"));
+        lists.put(Contact.class, schema.forType("ContactList"));
+        lists.put(Long.class, schema.forType("ContactIdList"));
+        lists.put(ContactBatchResult.class, schema.forType("ContactBatchResultList"));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return messages.containsKey(clazz) || List.class.isAssignableFrom(clazz) 
+                || MappingJacksonValue.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return canRead(mediaType) && (messages.containsKey(ResolvableType.forType(type).resolve()) 
+                || lists.containsKey(elementClass(type)));
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        if (!canWrite(mediaType)) {
+            return false;
+        }
+        if (List.class.isAssignableFrom(clazz)) {
+            // the elements of a List<?> are only known when it is written
+            Class<?> element = elementClass(type != null ? type : clazz);
+            return element == null || element == Object.class || lists.containsKey(element);
+        }
+        // what it wraps is only known when it is written
+        return messages.containsKey(clazz) || MappingJacksonValue.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        Class<?> element = elementClass(type);
+        if (element != null && lists.containsKey(element)) {
+            JsonNode list = protobufMapper.readerFor(JsonNode.class)
+                    .with(lists.get(element))
+                    .readValue(inputMessage.getBody());
+            JavaType listType = objectMapper.constructType(type);
+            // a list without items is an empty message
+            JsonNode items = list == null ? null : list.get(ITEMS);
+            return items == null ? new ArrayList<>() : objectMapper.convertValue(items, listType);
+        }
+        return readInternal(ResolvableType.forType(type).resolve(Object.class), inputMessage);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        ProtobufSchema message = messages.get(clazz);
+        if (message == null) {
+            throw new HttpMessageNotReadableException("No protobuf message for " + clazz.getName(), inputMessage);
+        }
+        return protobufMapper.readerFor(clazz).with(message).readValue(inputMessage.getBody());
+    }
+
+    @Override
+    protected void writeInternal(Object value, Type type, HttpOutputMessage outputMessage) throws IOException {
+        FilterProvider filters = null;
+        if (value instanceof MappingJacksonValue) {
+            MappingJacksonValue container = (MappingJacksonValue) value;
+            value = container.getValue();
+            filters = container.getFilters();
+        }
+        if (value instanceof List) {
+            List<?> items = (List<?>) value;
+            if (items.isEmpty()) {
+                // an empty message has no bytes, whatever its type
+                return;
+            }
+            Object first = items.get(0);
+            ProtobufSchema list = lists.get(first.getClass());
+            if (list == null) {
+                throw new HttpMessageNotWritableException("No protobuf message for a list of " 
+                        + first.getClass().getName());
+            }
+            writer(list, filters).writeValue(outputMessage.getBody(), Collections.singletonMap(ITEMS, items));
+            return;
+        }
+        
+        ProtobufSchema message = messages.get(value.getClass());
+        if (message == null) {
+            throw new HttpMessageNotWritableException("No protobuf message for " + value.getClass().getName());
+        }
+        writer(message, filters).writeValue(outputMessage.getBody(), value);
+    }
+    
+    private ObjectWriter writer(ProtobufSchema schema, FilterProvider filters) {
+        ObjectWriter writer = protobufMapper.writer(schema);
+        return filters == null ? writer : writer.with(filters);
+    }
+    
+    /**
+     * Element class of a List type, null when type is not a List.
+     */
+    private static Class<?> elementClass(Type type) {
+        ResolvableType resolved = ResolvableType.forType(type);
+        if (!List.class.isAssignableFrom(resolved.resolve(Object.class))) {
+            return null;
+        }
+        return resolved.asCollection().resolveGeneric(0);
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.io;
+
+import com.dariawan.contactapp.domain.Contact;
+import lombok.Getter;
+
+/**
+ * One record read from an import file: either a parsed contact or the reason
+ * it could not be parsed, together with the line it was read from.
+ */
+@Getter
+public class ContactRecord {
+
+    private final long lineNumber;
+    
+    private final Contact contact;
+    
+    private final String error;
+
+    private ContactRecord(long lineNumber, Contact contact, String error) {
+        this.lineNumber = lineNumber;
+        this.contact = contact;
+        this.error = error;
+    }
+    
+    public static ContactRecord parsed(long lineNumber, Contact contact) {
+        return new ContactRecord(lineNumber, contact, null);
+    }
+    
+    public static ContactRecord malformed(long lineNumber, String error) {
+        return new ContactRecord(lineNumber, null, error);
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.io;
+
+import com.dariawan.contactapp.domain.Contact;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads contacts one record at a time from an NDJSON or CSV stream, so only
+ * the current record is held in memory. Records that cannot be parsed are
+ * returned as malformed instead of aborting the whole read. NDJSON lines
+ * longer than {@link #MAX_LINE_LENGTH} are skipped without being buffered
+ * and rejected.
+ */
+public abstract class ContactRecordReader implements Iterator<ContactRecord>, Closeable {
+    
+    public static final int MAX_LINE_LENGTH = 64 * 1024;
+    
+    private static final CsvMapper CSV_MAPPER = new CsvMapper();
+    
+    private ContactRecord next;
+    
+    protected abstract ContactRecord read() throws IOException;
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = read();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public ContactRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ContactRecord record = next;
+        next = null;
+        return record;
+    }
+    
+    static ContactRecordReader ndjson(ObjectMapper objectMapper, InputStream in) {
+        return new NdjsonReader(objectMapper.readerFor(Contact.class), in);
+    }
+    
+    static ContactRecordReader csv(ObjectMapper objectMapper, InputStream in) throws IOException {
+        MappingIterator<Map<String, String>> rows = CSV_MAPPER.readerFor(Map.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(in);
+        return new CsvReader(objectMapper, rows);
+    }
+    
+    private static class NdjsonReader extends ContactRecordReader {
+        
+        private final ObjectReader objectReader;
+        
+        private final BufferedReader lines;
+        
+        private final StringBuilder line = new StringBuilder();
+        
+        private long lineNumber;
+        
+        private int lastChar;
+
+        NdjsonReader(ObjectReader objectReader, InputStream in) {
+            this.objectReader = objectReader;
+            this.lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        protected ContactRecord read() throws IOException {
+            do {
+                if (readLine()) {
+                    return ContactRecord.malformed(lineNumber, 
+                            "Line is longer than " + MAX_LINE_LENGTH + " characters");
+                }
+                if (line.length() == 0 && lastChar < 0) {
+                    return null;
+                }
+            } while (isBlank(line));
+            
+            try {
+                return ContactRecord.parsed(lineNumber, objectReader.readValue(line.toString()));
+            } catch (JsonProcessingException ex) {
+                return ContactRecord.malformed(lineNumber, ex.getOriginalMessage());
+            }
+        }
+        
+        /**
+         * Reads the next line into {@link #line}, keeping at most
+         * MAX_LINE_LENGTH characters of it; the rest of a longer line is
+         * discarded. Returns whether the line was too long.
+         */
+        private boolean readLine() throws IOException {
+            line.setLength(0);
+            boolean tooLong = false;
+            int c;
+            while ((c = lines.read()) >= 0 && c != '\n') {
+                if (line.length() < MAX_LINE_LENGTH) {
+                    line.append((char) c);
+                } else if (c != '\r') {
+                    tooLong = true;
+                }
+            }
+            lastChar = c;
+            if (c >= 0 || line.length() > 0 || tooLong) {
+                lineNumber++;
+            }
+            return tooLong;
+        }
+        
+        private static boolean isBlank(CharSequence chars) {
+            for (int i = 0; i < chars.length(); i++) {
+                if (!Character.isWhitespace(chars.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            lines.close();
+        }
+    }
+    
+    private static class CsvReader extends ContactRecordReader {
+        
+        private final ObjectMapper objectMapper;
+        
+        private final MappingIterator<Map<String, String>> rows;
+
+        CsvReader(ObjectMapper objectMapper, MappingIterator<Map<String, String>> rows) {
+            this.objectMapper = objectMapper;
+            this.rows = rows;
+        }
+
+        @Override
+        protected ContactRecord read() throws IOException {
+            if (!rows.hasNextValue()) {
+                return null;
+            }
+            Map<String, String> row = rows.nextValue();
+            long lineNumber = rows.getParser().getTokenLocation().getLineNr();
+            
+            // empty cells are absent values, not empty strings
+            row.values().removeIf(String::isEmpty);
+            try {
+                return ContactRecord.parsed(lineNumber, objectMapper.convertValue(row, Contact.class));
+            } catch (IllegalArgumentException ex) {
+                return ContactRecord.malformed(lineNumber, ex.getMessage());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            rows.close();
+        }
+    }
+}
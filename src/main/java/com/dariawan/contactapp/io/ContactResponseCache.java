@@ -0,0 +1,233 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.io;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.ehcache.Cache;
+import org.ehcache.CacheManager;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.CacheManagerBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.config.units.MemoryUnit;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Encoded contacts, ready to be written as a response body, per contact id
+ * and media type. Each entry is a single byte array off-heap: the version
+ * of the contact followed by the encoded contact.
+ * <p>
+ * A contact's entries are invalidated whenever it is written. A reader that
+ * loaded the contact before a write completed must not cache it afterwards,
+ * so {@link #put} only succeeds if no invalidation happened since the
+ * reader took its {@link #stamp}. Entries are only served for the version
+ * the caller knows to be current, which also covers writes that did not
+ * invalidate, such as a replica catching up.
+ */
+public class ContactResponseCache implements AutoCloseable {
+    
+    /**
+     * The media types that are cached, every representation of a contact.
+     */
+    public static final List<MediaType> MEDIA_TYPES = Collections.unmodifiableList(Arrays.asList(
+            MediaType.APPLICATION_JSON,
+            MediaType.APPLICATION_XML,
+            MediaType.valueOf("application/x-jackson-smile"),
+            MediaType.valueOf("application/cbor"),
+            ContactProtobufHttpMessageConverter.APPLICATION_PROTOBUF));
+    
+    private static final String CACHE = "contactResponses";
+    
+    private static final int STRIPES = 1024;
+    
+    private final CacheManager cacheManager;
+    
+    private final Cache<String, byte[]> cache;
+    
+    /**
+     * Invalidation count per stripe of contact ids.
+     */
+    private final AtomicLongArray stamps = new AtomicLongArray(STRIPES);
+    
+    private final AtomicLong hits = new AtomicLong();
+    
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * A cache of at most maxMegabytes, or one that caches nothing when
+     * maxMegabytes is 0.
+     */
+    public ContactResponseCache(long maxMegabytes, Duration timeToLive) {
+        if (maxMegabytes <= 0) {
+            cacheManager = null;
+            cache = null;
+            return;
+        }
+        cacheManager = CacheManagerBuilder.newCacheManagerBuilder()
+                .withCache(CACHE, CacheConfigurationBuilder.newCacheConfigurationBuilder(String.class, byte[].class,
+                        ResourcePoolsBuilder.newResourcePoolsBuilder().offheap(maxMegabytes, MemoryUnit.MB))
+                        .withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(timeToLive)))
+                .build(true);
+        cache = cacheManager.getCache(CACHE, String.class, byte[].class);
+    }
+    
+    /**
+     * The cached response for a contact at version in mediaType, null when
+     * there is none or only one of another version.
+     */
+    public CachedResponse get(Long id, MediaType mediaType, Long version) {
+        if (cache == null) {
+            return null;
+        }
+        byte[] value = version == null ? null : cache.get(key(id, mediaType));
+        if (value == null || ByteBuffer.wrap(value).getLong() != version) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return new CachedResponse(ByteBuffer.wrap(value).getLong(), Arrays.copyOfRange(value, Long.BYTES, value.length));
+    }
+    
+    /**
+     * To be taken before the contact is loaded, and passed to {@link #put}.
+     */
+    public long stamp(Long id) {
+        return stamps.get(stripe(id));
+    }
+    
+    /**
+     * Cache body, the contact at version encoded as mediaType, unless the
+     * contact was invalidated since stamp was taken.
+     */
+    public void put(Long id, MediaType mediaType, Long version, byte[] body, long stamp) {
+        if (cache == null || version == null || stamps.get(stripe(id)) != stamp) {
+            return;
+        }
+        byte[] value = ByteBuffer.allocate(Long.BYTES + body.length).putLong(version).put(body).array();
+        String key = key(id, mediaType);
+        cache.put(key, value);
+        if (stamps.get(stripe(id)) != stamp) {
+            // invalidated while we were writing
+            cache.remove(key);
+        }
+    }
+    
+    /**
+     * Drop the cached responses of a contact, now and again when the current
+     * transaction completes.
+     */
+    public void invalidate(Long id) {
+        if (cache == null || id == null) {
+            return;
+        }
+        remove(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    remove(id);
+                }
+            });
+        }
+    }
+    
+    public long getHits() {
+        return hits.get();
+    }
+    
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    @Override
+    public void close() {
+        if (cacheManager != null) {
+            cacheManager.close();
+        }
+    }
+    
+    private void remove(Long id) {
+        stamps.incrementAndGet(stripe(id));
+        for (MediaType mediaType : MEDIA_TYPES) {
+            cache.remove(key(id, mediaType));
+        }
+    }
+    
+    /**
+     * Key of a cacheable mediaType, one of {@link #MEDIA_TYPES}.
+     */
+    private static String key(Long id, MediaType mediaType) {
+        return id + " " + mediaType.getType() + "/" + mediaType.getSubtype();
+    }
+    
+    private static int stripe(Long id) {
+        return Long.hashCode(id) & (STRIPES - 1);
+    }
+    
+    /**
+     * A contact encoded at a version.
+     */
+    public static class CachedResponse {
+        
+        private final long version;
+        
+        private final byte[] body;
+
+        CachedResponse(long version, byte[] body) {
+            this.version = version;
+            this.body = body;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+}
@@ -43,5 +43,5 @@ import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
 public interface ContactRepository extends PagingAndSortingRepository<Contact, Long>, 
-        JpaSpecificationExecutor<Contact> {
+        JpaSpecificationExecutor<Contact>, ContactRepositoryCustom {
 }
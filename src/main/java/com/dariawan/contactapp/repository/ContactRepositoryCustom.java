@@ -0,0 +1,105 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.repository;
+
+import com.dariawan.contactapp.domain.Contact;
+import org.springframework.data.domain.Pageable;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+public interface ContactRepositoryCustom {
+
+    /**
+     * Find a slice of contacts matching the specification. Reads one row
+     * more than the page size to tell whether a next slice exists, instead
+     * of running a count query like the Page returning variants.
+     */
+    Slice<Contact> findSlice(Specification<Contact> spec, Pageable pageable);
+    
+    /**
+     * Like {@link #findSlice(Specification, Pageable)}, but selects only the
+     * given properties. The returned contacts are not managed and have all
+     * other properties null.
+     */
+    Slice<Contact> findSlice(Specification<Contact> spec, Pageable pageable, List<String> properties);
+    
+    /**
+     * Stream all contacts matching the specification through a server side
+     * cursor, reading fetchSize rows per round trip. Must be consumed inside
+     * a transaction and closed afterwards; streamed entities bypass the
+     * second-level cache.
+     */
+    Stream<Contact> stream(Specification<Contact> spec, Sort sort, int fetchSize);
+    
+    /**
+     * Estimated number of contacts. On PostgreSQL this is the planner
+     * statistic pg_class.reltuples, other databases fall back to count(*).
+     */
+    long estimateCount();
+    
+    /**
+     * Replace the columns of a contact and increment its version in a single
+     * UPDATE, without loading it first. With expectedVersion not null only
+     * that version of the contact is updated. Returns the number of updated
+     * rows.
+     */
+    int update(Contact contact, Long expectedVersion);
+    
+    /**
+     * Update only the given columns of a contact, keyed by property name, and
+     * increment its version in a single UPDATE. With expectedVersion not null
+     * only that version of the contact is updated. Returns the number of
+     * updated rows.
+     *
+     * @throws IllegalArgumentException if a property is not an updatable
+     * column of Contact
+     */
+    int updateColumns(Long id, Map<String, String> values, Long expectedVersion);
+    
+    /**
+     * Delete a contact in a single DELETE, without loading it first. With
+     * expectedVersion not null only that version of the contact is deleted.
+     * Returns the number of deleted rows.
+     */
+    int delete(Long id, Long expectedVersion);
+}
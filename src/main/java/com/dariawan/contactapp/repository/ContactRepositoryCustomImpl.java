@@ -0,0 +1,296 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.repository;
+
+import com.dariawan.contactapp.config.CacheProperties;
+import com.dariawan.contactapp.domain.Contact;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import javax.sql.DataSource;
+import org.hibernate.CacheMode;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class ContactRepositoryCustomImpl implements ContactRepositoryCustom {
+
+    private static final String UPDATE_SQL = "UPDATE contact SET name = ?, phone = ?, email = ?, "
+            + "address1 = ?, address2 = ?, address3 = ?, postal_code = ?, note = ?, "
+            + "version = version + 1 WHERE id = ?";
+    
+    /**
+     * Updatable columns, by property name of Contact.
+     */
+    private static final Map<String, String> COLUMNS;
+    
+    static {
+        Map<String, String> columns = new LinkedHashMap<>();
+        columns.put("name", "name");
+        columns.put("phone", "phone");
+        columns.put("email", "email");
+        columns.put("address1", "address1");
+        columns.put("address2", "address2");
+        columns.put("address3", "address3");
+        columns.put("postalCode", "postal_code");
+        columns.put("note", "note");
+        COLUMNS = Collections.unmodifiableMap(columns);
+    }
+    
+    private static final String DELETE_SQL = "DELETE FROM contact WHERE id = ?";
+    
+    private static final String VERSION_CONDITION = " AND version = ?";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private DataSource dataSource;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private CacheProperties cacheProperties;
+    
+    private volatile Boolean postgres;
+
+    @Override
+    public Slice<Contact> findSlice(Specification<Contact> spec, Pageable pageable) {
+        List<Contact> contacts = query(spec, pageable.getSort())
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .setHint(QueryHints.HINT_CACHEABLE, cacheProperties.isQueryCache())
+                .getResultList();
+        
+        boolean hasNext = contacts.size() > pageable.getPageSize();
+        if (hasNext) {
+            contacts = contacts.subList(0, pageable.getPageSize());
+        }
+        return new SliceImpl<>(contacts, pageable, hasNext);
+    }
+
+    @Override
+    public Slice<Contact> findSlice(Specification<Contact> spec, Pageable pageable, List<String> properties) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> cq = cb.createTupleQuery();
+        Root<Contact> root = cq.from(Contact.class);
+        
+        List<Selection<?>> selections = new ArrayList<>();
+        for (String property : properties) {
+            selections.add(root.get(property).alias(property));
+        }
+        cq.multiselect(selections);
+        where(cq, root, cb, spec, pageable.getSort());
+        
+        List<Tuple> rows = entityManager.createQuery(cq)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .setHint(QueryHints.HINT_CACHEABLE, cacheProperties.isQueryCache())
+                .getResultList();
+        
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        List<Contact> contacts = new ArrayList<>();
+        for (Tuple row : rows.subList(0, Math.min(rows.size(), pageable.getPageSize()))) {
+            BeanWrapper contact = PropertyAccessorFactory.forBeanPropertyAccess(new Contact());
+            for (String property : properties) {
+                contact.setPropertyValue(property, row.get(property));
+            }
+            contacts.add((Contact) contact.getWrappedInstance());
+        }
+        return new SliceImpl<>(contacts, pageable, hasNext);
+    }
+
+    @Override
+    public Stream<Contact> stream(Specification<Contact> spec, Sort sort, int fetchSize) {
+        return query(spec, sort)
+                .setHint(QueryHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(QueryHints.HINT_CACHE_MODE, CacheMode.IGNORE)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream();
+    }
+
+    @Override
+    public long estimateCount() {
+        if (isPostgres()) {
+            Number estimate = (Number) entityManager.createNativeQuery(
+                    "SELECT reltuples FROM pg_class WHERE relname = 'contact'")
+                    .getSingleResult();
+            // reltuples is 0 or -1 until the table is first analyzed
+            if (estimate != null && estimate.longValue() > 0) {
+                return estimate.longValue();
+            }
+        }
+        return entityManager.createQuery("select count(c) from Contact c", Long.class)
+                .getSingleResult();
+    }
+    
+    @Override
+    public int update(Contact contact, Long expectedVersion) {
+        List<Object> args = new ArrayList<>(Arrays.asList(contact.getName(), contact.getPhone(), 
+                contact.getEmail(), contact.getAddress1(), contact.getAddress2(), 
+                contact.getAddress3(), contact.getPostalCode(), contact.getNote(), contact.getId()));
+        return execute(UPDATE_SQL, args, contact.getId(), expectedVersion);
+    }
+
+    @Override
+    public int updateColumns(Long id, Map<String, String> values, Long expectedVersion) {
+        StringBuilder sql = new StringBuilder("UPDATE contact SET ");
+        List<Object> args = new ArrayList<>();
+        for (Map.Entry<String, String> value : values.entrySet()) {
+            String column = COLUMNS.get(value.getKey());
+            if (column == null) {
+                throw new IllegalArgumentException("Not an updatable property: " + value.getKey());
+            }
+            sql.append(column).append(" = ?, ");
+            args.add(value.getValue());
+        }
+        sql.append("version = version + 1 WHERE id = ?");
+        args.add(id);
+        return execute(sql.toString(), args, id, expectedVersion);
+    }
+
+    @Override
+    public int delete(Long id, Long expectedVersion) {
+        List<Object> args = new ArrayList<>(Arrays.asList(id));
+        return execute(DELETE_SQL, args, id, expectedVersion);
+    }
+    
+    /**
+     * Run a statement over the contact with the given id, which is the last
+     * of args. Goes through JDBC instead of a JPQL bulk statement because
+     * Hibernate drops the whole Contact cache region after those; here only
+     * the affected entry is evicted.
+     */
+    private int execute(String sql, List<Object> args, Long id, Long expectedVersion) {
+        if (expectedVersion != null) {
+            sql += VERSION_CONDITION;
+            args.add(expectedVersion);
+        }
+        // explicit types, so a null value does not cost a parameter metadata lookup
+        int[] types = new int[args.size()];
+        Arrays.fill(types, Types.VARCHAR);
+        types[types.length - 1] = Types.BIGINT;
+        if (expectedVersion != null) {
+            types[types.length - 2] = Types.BIGINT;
+        }
+        
+        int rows = jdbcTemplate.update(sql, args.toArray(), types);
+        if (rows > 0) {
+            evict(id);
+        }
+        return rows;
+    }
+    
+    private void evict(Long id) {
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        cache.evict(Contact.class, id);
+        if (cacheProperties.isQueryCache()) {
+            cache.unwrap(org.hibernate.Cache.class).evictDefaultQueryRegion();
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // again once committed, a concurrent reader may have cached the old row meanwhile
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.evict(Contact.class, id);
+                }
+            });
+        }
+    }
+    
+    private TypedQuery<Contact> query(Specification<Contact> spec, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Contact> cq = cb.createQuery(Contact.class);
+        Root<Contact> root = cq.from(Contact.class);
+        where(cq, root, cb, spec, sort);
+        return entityManager.createQuery(cq);
+    }
+    
+    private void where(CriteriaQuery<?> cq, Root<Contact> root, CriteriaBuilder cb, 
+            Specification<Contact> spec, Sort sort) {
+        if (spec != null) {
+            Predicate p = spec.toPredicate(root, cq, cb);
+            if (p != null) {
+                cq.where(p);
+            }
+        }
+        if (sort.isSorted()) {
+            cq.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+    }
+    
+    private boolean isPostgres() {
+        if (postgres == null) {
+            try (Connection conn = dataSource.getConnection()) {
+                postgres = "PostgreSQL".equals(conn.getMetaData().getDatabaseProductName());
+            } catch (SQLException ex) {
+                return false;
+            }
+        }
+        return postgres;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.service;
+
+import com.dariawan.contactapp.domain.CacheRegionStatistics;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.springframework.stereotype.Service;
+
+/**
+ * Reads the statistics that the JCache provider publishes over JMX for every
+ * second-level cache region.
+ */
+@Service
+public class CacheStatisticsService {
+    
+    private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    
+    public List<CacheRegionStatistics> findAll() throws JMException {
+        List<CacheRegionStatistics> statistics = new ArrayList<>();
+        for (ObjectName name : mBeanServer.queryNames(new ObjectName("javax.cache:type=CacheStatistics,*"), null)) {
+            CacheRegionStatistics region = new CacheRegionStatistics();
+            region.setRegion(name.getKeyProperty("Cache"));
+            region.setHits((Long) mBeanServer.getAttribute(name, "CacheHits"));
+            region.setMisses((Long) mBeanServer.getAttribute(name, "CacheMisses"));
+            region.setHitPercentage((Float) mBeanServer.getAttribute(name, "CacheHitPercentage"));
+            region.setPuts((Long) mBeanServer.getAttribute(name, "CachePuts"));
+            region.setEvictions((Long) mBeanServer.getAttribute(name, "CacheEvictions"));
+            region.setRemovals((Long) mBeanServer.getAttribute(name, "CacheRemovals"));
+            statistics.add(region);
+        }
+        statistics.sort(Comparator.comparing(CacheRegionStatistics::getRegion));
+        return statistics;
+    }
+}
@@ -38,62 +38,364 @@
  */
 package com.dariawan.contactapp.service;
 
+import com.dariawan.contactapp.concurrent.SingleFlight;
+import com.dariawan.contactapp.datasource.ReplicaRoutingDataSource;
 import com.dariawan.contactapp.domain.Address;
 import com.dariawan.contactapp.domain.Contact;
+import com.dariawan.contactapp.domain.CoalescingStatistics;
+import com.dariawan.contactapp.domain.ContactBatchResult;
+import com.dariawan.contactapp.domain.ContactCursor;
+import com.dariawan.contactapp.domain.ContactImportResult;
+import com.dariawan.contactapp.domain.ContactLookupResult;
 import com.dariawan.contactapp.exception.BadResourceException;
+import com.dariawan.contactapp.exception.PreconditionFailedException;
 import com.dariawan.contactapp.exception.ResourceAlreadyExistsException;
 import com.dariawan.contactapp.exception.ResourceNotFoundException;
+import com.dariawan.contactapp.io.ContactRecord;
+import com.dariawan.contactapp.io.ContactResponseCache;
 import com.dariawan.contactapp.repository.ContactRepository;
+import com.dariawan.contactapp.specification.ContactKeysetSpecification;
 import com.dariawan.contactapp.specification.ContactSpecification;
+import com.dariawan.contactapp.specification.SearchMode;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import javax.annotation.PostConstruct;
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.entry.CacheEntry;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
+/**
+ * Contacts use cases. Every method runs in a read-only transaction unless
+ * annotated otherwise: Hibernate then skips flushing and keeps no dirty
+ * checking snapshots of the loaded contacts, and the JDBC connection is
+ * marked read-only. Each write runs in a transaction of its own.
+ */
 @Service
+@Transactional(readOnly = true)
 public class ContactService {
     
+    private static final Sort SORT_BY_ID = Sort.by("id");
+    
+    private static final int COUNT_CACHE_MAX_ENTRIES = 1000;
+    
+    private static final Set<String> NOT_PATCHABLE = 
+            Collections.unmodifiableSet(new HashSet<>(Arrays.asList("id", "version")));
+    
     @Autowired
     private ContactRepository contactRepository;
     
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Autowired
+    private Validator validator;
+    
+    @Autowired
+    private ContactResponseCache responseCache;
+    
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int jdbcBatchSize;
+    
+    @Value("${contact.batch.max-size:10000}")
+    private int batchMaxSize;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Value("${contact.import.chunk-size:500}")
+    private int importChunkSize;
+    
+    @Value("${contact.import.max-rejections-reported:1000}")
+    private int importMaxRejectionsReported;
+    
+    @Value("${contact.lookup.max-ids:1000}")
+    private int lookupMaxIds;
+    
+    @Value("${contact.lookup.chunk-size:500}")
+    private int lookupChunkSize;
+    
+    @Value("${contact.export.fetch-size:500}")
+    private int exportFetchSize;
+    
+    @Value("${contact.count.cache-ttl-seconds:60}")
+    private long countCacheTtlSeconds;
+    
+    private final Map<String, CachedCount> countCache = new ConcurrentHashMap<>();
+    
+    private final SingleFlight<List<Object>, Contact> findByIdFlight = new SingleFlight<>("contact.findById");
+    
+    private final SingleFlight<List<Object>, Slice<Contact>> findByNameFlight = 
+            new SingleFlight<>("contact.findByName");
+    
+    private TransactionTemplate readOnlyTransactionTemplate;
+    
+    @PostConstruct
+    private void createReadOnlyTransactionTemplate() {
+        readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnlyTransactionTemplate.setReadOnly(true);
+    }
+    
     private boolean existsById(Long id) {
         return contactRepository.existsById(id);
     }
     
+    /**
+     * Mostly served from the second-level cache, so it joins a transaction
+     * but does not begin one. Outside of a transaction the contact is read
+     * with the EntityManager rather than the repository, whose findById
+     * would begin a read-only transaction and take a pooled connection even
+     * on a cache hit; a miss runs its query on a connection of its own, still
+     * routed as read-only. Concurrent calls for the same id then share one
+     * lookup and the same Contact instance, which callers must not modify;
+     * calls in a primary-only scope never share the lookup of a call that
+     * may read from a replica.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
     public Contact findById(Long id) throws ResourceNotFoundException {
-        Contact contact = contactRepository.findById(id).orElse(null);
+        Contact contact;
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            contact = contactRepository.findById(id).orElse(null);
+        }
+        else {
+            contact = findByIdFlight.execute(Arrays.asList(id, ReplicaRoutingDataSource.isPrimaryOnly()), 
+                    () -> entityManager.find(Contact.class, id));
+        }
         if (contact==null) {
             throw new ResourceNotFoundException("Cannot find Contact with id: " + id);
         }
         else return contact;
     }
     
+    /**
+     * Version of the contact in the second-level cache, or null when it is
+     * not cached there. Only rows written or read on the primary are cached
+     * (see ReplicaRoutingDataSource), so this is the current version of the
+     * contact, which copies of it kept elsewhere can be checked against.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Long findCachedVersion(Long id) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        SessionFactoryImplementor factory = session.getFactory();
+        EntityPersister persister = factory.getMetamodel().entityPersister(Contact.class);
+        EntityDataAccess cache = persister.getCacheAccessStrategy();
+        Object entry = cache.get(session, cache.generateCacheKey(id, persister, factory, null));
+        if (entry == null) {
+            return null;
+        }
+        return (Long) ((CacheEntry) persister.getCacheEntryStructure().destructure(entry, factory)).getVersion();
+    }
+    
+    /**
+     * Find the contacts with the given ids, in request order, listing the ids
+     * without a contact as missing. Contacts in the second-level cache are
+     * served from it, the others are read with one IN query per chunk of
+     * ids.
+     */
+    public ContactLookupResult lookup(List<Long> ids) throws BadResourceException {
+        if (ids == null || ids.isEmpty() || ids.size() > lookupMaxIds || ids.contains(null)) {
+            BadResourceException exc = new BadResourceException("Failed to lookup contacts");
+            exc.addErrorMessage("Lookup must contain between 1 and " + lookupMaxIds + " ids");
+            throw exc;
+        }
+        
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        Map<Long, Contact> found = new HashMap<>();
+        Cache cache = entityManager.getEntityManagerFactory().getCache();
+        List<Long> uncached = new ArrayList<>();
+        for (Long id : distinct) {
+            if (cache.contains(Contact.class, id)) {
+                found.put(id, entityManager.find(Contact.class, id));
+            }
+            else {
+                uncached.add(id);
+            }
+        }
+        for (int from = 0; from < uncached.size(); from += lookupChunkSize) {
+            List<Long> chunk = uncached.subList(from, Math.min(from + lookupChunkSize, uncached.size()));
+            for (Contact contact : contactRepository.findAllById(chunk)) {
+                found.put(contact.getId(), contact);
+            }
+        }
+        
+        ContactLookupResult result = new ContactLookupResult();
+        for (Long id : distinct) {
+            Contact contact = found.get(id);
+            if (contact != null) {
+                result.getContacts().add(contact);
+            }
+            else {
+                result.getMissing().add(id);
+            }
+        }
+        return result;
+    }
+    
     public List<Contact> findAll(int pageNumber, int rowPerPage) {
-        List<Contact> contacts = new ArrayList<>();
-        contactRepository.findAll(PageRequest.of(pageNumber - 1, rowPerPage)).forEach(contacts::add);
-        return contacts;
+        return findSlice(pageNumber, rowPerPage).getContent();
     }
     
     public List<Contact> findAllByName(String name, int pageNumber, int rowPerPage) {
-        Contact filter = new Contact();
-        filter.setName(name);
-        Specification<Contact> spec = new ContactSpecification(filter);
+        return findSliceByName(name, SearchMode.SUBSTRING, pageNumber, rowPerPage).getContent();
+    }
+    
+    public Slice<Contact> findSlice(int pageNumber, int rowPerPage) {
+        return findSlice(pageNumber, rowPerPage, null);
+    }
+    
+    /**
+     * A slice of contacts with only the given properties loaded, or whole
+     * contacts when fields is null.
+     */
+    public Slice<Contact> findSlice(int pageNumber, int rowPerPage, List<String> fields) {
+        return findSlice(null, PageRequest.of(pageNumber - 1, rowPerPage, SORT_BY_ID), fields);
+    }
+    
+    public Slice<Contact> findSliceByName(String name, SearchMode mode, int pageNumber, int rowPerPage) {
+        return findSliceByName(name, mode, pageNumber, rowPerPage, null);
+    }
+    
+    /**
+     * Search by name. Outside of a transaction concurrent identical searches
+     * share one query, run in a read-only transaction of its own, and the
+     * same result, which callers must not modify. As with findById, calls in
+     * a primary-only scope only share queries with each other.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Slice<Contact> findSliceByName(String name, SearchMode mode, int pageNumber, int rowPerPage, 
+            List<String> fields) {
+        Specification<Contact> spec = nameSpecification(name, mode);
+        Pageable pageable = PageRequest.of(pageNumber - 1, rowPerPage, SORT_BY_ID);
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return findSlice(spec, pageable, fields);
+        }
+        // coalesce before the transaction begins, waiting callers hold no connection
+        return findByNameFlight.execute(Arrays.asList(name, mode, pageNumber, rowPerPage, fields, 
+                ReplicaRoutingDataSource.isPrimaryOnly()), 
+                () -> readOnlyTransactionTemplate.execute(status -> findSlice(spec, pageable, fields)));
+    }
+    
+    public Slice<Contact> findAllAfter(String name, SearchMode mode, ContactCursor after, int rowPerPage) {
+        return findAllAfter(name, mode, after, rowPerPage, null);
+    }
+    
+    /**
+     * Keyset page of contacts. Besides the given fields, id and name are
+     * always loaded for the cursor of the next page.
+     */
+    public Slice<Contact> findAllAfter(String name, SearchMode mode, ContactCursor after, int rowPerPage, 
+            List<String> fields) {
+        Specification<Contact> spec = StringUtils.isEmpty(name) ? null : nameSpecification(name, mode);
+        if (after != null) {
+            spec = Specification.where(spec).and(new ContactKeysetSpecification(after));
+        }
         
-        List<Contact> contacts = new ArrayList<>();
-        contactRepository.findAll(spec, PageRequest.of(pageNumber - 1, rowPerPage)).forEach(contacts::add);
-        return contacts;
+        return findSlice(spec, PageRequest.of(0, rowPerPage, ContactKeysetSpecification.SORT), 
+                withFields(fields, "id", "name"));
+    }
+    
+    /**
+     * A contact with only the given properties and its version loaded, or
+     * the whole contact when fields is null. Served from the second-level
+     * cache when the contact is there.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public Contact findById(Long id, List<String> fields) throws ResourceNotFoundException {
+        if (fields == null || entityManager.getEntityManagerFactory().getCache().contains(Contact.class, id)) {
+            return findById(id);
+        }
+        Specification<Contact> byId = (root, query, cb) -> cb.equal(root.get("id"), id);
+        List<Contact> contacts = contactRepository.findSlice(byId, PageRequest.of(0, 1), 
+                withFields(fields, "version")).getContent();
+        if (contacts.isEmpty()) {
+            throw new ResourceNotFoundException("Cannot find Contact with id: " + id);
+        }
+        return contacts.get(0);
+    }
+    
+    private Slice<Contact> findSlice(Specification<Contact> spec, Pageable pageable, List<String> fields) {
+        if (fields == null) {
+            return contactRepository.findSlice(spec, pageable);
+        }
+        return contactRepository.findSlice(spec, pageable, fields);
     }
     
+    private List<String> withFields(List<String> fields, String... required) {
+        if (fields == null) {
+            return null;
+        }
+        List<String> properties = new ArrayList<>(fields);
+        for (String property : required) {
+            if (!properties.contains(property)) {
+                properties.add(property);
+            }
+        }
+        return properties;
+    }
+    
+    /**
+     * Hand every contact matching name (all contacts when name is empty) to
+     * consumer, in id order. Contacts are detached once consumed, so memory
+     * use does not depend on the number of rows.
+     */
+    public void exportAll(String name, SearchMode mode, Consumer<Contact> consumer) {
+        Specification<Contact> spec = StringUtils.isEmpty(name) ? null : nameSpecification(name, mode);
+        try (Stream<Contact> contacts = contactRepository.stream(spec, SORT_BY_ID, exportFetchSize)) {
+            contacts.forEach(contact -> {
+                consumer.accept(contact);
+                entityManager.detach(contact);
+            });
+        }
+    }
+    
+    @Transactional
     public Contact save(Contact contact) throws BadResourceException, ResourceAlreadyExistsException {
         if (!StringUtils.isEmpty(contact.getName())) {
             if (contact.getId() != null && existsById(contact.getId())) { 
                 throw new ResourceAlreadyExistsException("Contact with id: " + contact.getId() +
                         " already exists");
             }
-            return contactRepository.save(contact);
+            // a new contact starts at version 0; with an unknown id given, a
+            // non-null version keeps save() merging it into a new row
+            contact.setVersion(contact.getId() == null ? null : 0L);
+            Contact saved = contactRepository.save(contact);
+            responseCache.invalidate(saved.getId());
+            return saved;
         }
         else {
             BadResourceException exc = new BadResourceException("Failed to save contact");
@@ -102,13 +404,167 @@ public class ContactService {
         }
     }
     
+    /**
+     * Create many contacts at once. Every contact is validated first; if any
+     * of them is invalid nothing is stored.
+     */
+    @Transactional
+    public List<ContactBatchResult> saveAll(List<Contact> contacts) throws BadResourceException {
+        if (contacts == null || contacts.isEmpty() || contacts.size() > batchMaxSize) {
+            BadResourceException exc = new BadResourceException("Failed to save contacts");
+            exc.addErrorMessage("Batch must contain between 1 and " + batchMaxSize + " contacts");
+            throw exc;
+        }
+        
+        List<ContactBatchResult> results = new ArrayList<>(contacts.size());
+        boolean valid = true;
+        for (int i = 0; i < contacts.size(); i++) {
+            ContactBatchResult result = new ContactBatchResult(i, ContactBatchResult.Status.SKIPPED);
+            Contact contact = contacts.get(i);
+            if (contact == null) {
+                result.getErrors().add("Contact is null or empty");
+            }
+            else {
+                if (contact.getId() != null) {
+                    result.getErrors().add("id: must be empty");
+                }
+                result.getErrors().addAll(validate(contact));
+            }
+            if (!result.getErrors().isEmpty()) {
+                result.setStatus(ContactBatchResult.Status.INVALID);
+                valid = false;
+            }
+            results.add(result);
+        }
+        if (!valid) {
+            return results;
+        }
+        
+        persistAll(contacts);
+        for (ContactBatchResult result : results) {
+            result.setId(contacts.get(result.getIndex()).getId());
+            result.setStatus(ContactBatchResult.Status.CREATED);
+        }
+        return results;
+    }
+    
+    /**
+     * Create the contacts read from records, committing every chunk-size
+     * valid contacts in its own transaction. Invalid records are skipped and
+     * reported with their line number; memory use is bounded by the chunk
+     * size, not by the number of records. Ids in the records are ignored.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ContactImportResult importAll(Iterator<ContactRecord> records) {
+        ContactImportResult result = new ContactImportResult();
+        List<Contact> chunk = new ArrayList<>(importChunkSize);
+        List<Long> lines = new ArrayList<>(importChunkSize);
+        long lastLine = 0;
+        try {
+            while (records.hasNext()) {
+                ContactRecord record = records.next();
+                lastLine = record.getLineNumber();
+                result.setProcessed(result.getProcessed() + 1);
+                
+                Contact contact = record.getContact();
+                List<String> errors;
+                if (contact == null) {
+                    errors = Collections.singletonList(record.getError());
+                }
+                else {
+                    contact.setId(null);
+                    errors = validate(contact);
+                }
+                if (!errors.isEmpty()) {
+                    reject(result, record.getLineNumber(), errors);
+                    continue;
+                }
+                
+                chunk.add(contact);
+                lines.add(record.getLineNumber());
+                if (chunk.size() >= importChunkSize) {
+                    commitChunk(result, chunk, lines);
+                }
+            }
+        } catch (UncheckedIOException ex) {
+            reject(result, lastLine + 1, Collections.singletonList(
+                    "Unreadable input, import stopped: " + ex.getCause().getMessage()));
+        }
+        commitChunk(result, chunk, lines);
+        return result;
+    }
+    
+    private void commitChunk(ContactImportResult result, List<Contact> chunk, List<Long> lines) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.execute(status -> {
+                persistAll(chunk);
+                return null;
+            });
+            result.setImported(result.getImported() + chunk.size());
+        } catch (DataAccessException ex) {
+            List<String> errors = Collections.singletonList("Not stored: " + ex.getMostSpecificCause().getMessage());
+            for (Long line : lines) {
+                reject(result, line, errors);
+            }
+        }
+        chunk.clear();
+        lines.clear();
+    }
+    
+    private void reject(ContactImportResult result, long line, List<String> errors) {
+        result.setRejected(result.getRejected() + 1);
+        if (result.getRejections().size() < importMaxRejectionsReported) {
+            result.getRejections().add(new ContactImportResult.Rejection(line, errors));
+        }
+    }
+    
+    private List<String> validate(Contact contact) {
+        List<String> errors = new ArrayList<>();
+        for (ConstraintViolation<Contact> violation : validator.validate(contact)) {
+            errors.add(violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+        return errors;
+    }
+    
+    /**
+     * Insert new contacts, flushing every JDBC batch size so the inserts go
+     * out as batches and the persistence context does not grow with the
+     * number of contacts. Requires a transaction.
+     */
+    private void persistAll(List<Contact> contacts) {
+        // bulk inserts would only churn the second-level cache
+        entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+        for (int from = 0; from < contacts.size(); from += jdbcBatchSize) {
+            List<Contact> batch = contacts.subList(from, Math.min(from + jdbcBatchSize, contacts.size()));
+            batch.forEach(contact -> contact.setVersion(null));
+            contactRepository.saveAll(batch);
+            entityManager.flush();
+            entityManager.clear();
+        }
+    }
+    
+    /**
+     * Replace a contact in a single UPDATE. When contact carries a version,
+     * the update only succeeds if it is still the current version of the
+     * contact.
+     */
+    @Transactional
     public void update(Contact contact) 
-            throws BadResourceException, ResourceNotFoundException {
+            throws BadResourceException, ResourceNotFoundException, PreconditionFailedException {
         if (!StringUtils.isEmpty(contact.getName())) {
-            if (!existsById(contact.getId())) {
-                throw new ResourceNotFoundException("Cannot find Contact with id: " + contact.getId());
+            List<String> errors = validate(contact);
+            if (!errors.isEmpty()) {
+                BadResourceException exc = new BadResourceException("Failed to save contact");
+                errors.forEach(exc::addErrorMessage);
+                throw exc;
+            }
+            responseCache.invalidate(contact.getId());
+            if (contactRepository.update(contact, contact.getVersion()) == 0) {
+                noRowMatched(contact.getId(), contact.getVersion());
             }
-            contactRepository.save(contact);
         }
         else {
             BadResourceException exc = new BadResourceException("Failed to save contact");
@@ -117,26 +573,197 @@ public class ContactService {
         }
     }
     
-    public void updateAddress(Long id, Address address) 
-            throws ResourceNotFoundException {
-        Contact contact = findById(id);
-        contact.setAddress1(address.getAddress1());
-        contact.setAddress2(address.getAddress2());
-        contact.setAddress3(address.getAddress3());
-        contact.setPostalCode(address.getPostalCode());
-        contactRepository.save(contact);        
+    /**
+     * Update the address columns of a contact in a single UPDATE, only if
+     * version is still its current version unless version is null.
+     */
+    @Transactional
+    public void updateAddress(Long id, Address address, Long version) 
+            throws BadResourceException, ResourceNotFoundException, PreconditionFailedException {
+        BadResourceException exc = new BadResourceException("Failed to update address");
+        for (ConstraintViolation<Address> violation : validator.validate(address)) {
+            exc.addErrorMessage(violation.getPropertyPath() + ": " + violation.getMessage());
+        }
+        if (!exc.getErrorMessages().isEmpty()) {
+            throw exc;
+        }
+        
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("address1", address.getAddress1());
+        values.put("address2", address.getAddress2());
+        values.put("address3", address.getAddress3());
+        values.put("postalCode", address.getPostalCode());
+        responseCache.invalidate(id);
+        if (contactRepository.updateColumns(id, values, version) == 0) {
+            noRowMatched(id, version);
+        }
     }
     
+    /**
+     * Apply a JSON Merge Patch (RFC 7396) to a contact: only the properties
+     * present in patch are updated, a null value clears the property. Runs a
+     * single UPDATE of just those columns, only if version is still the
+     * current version of the contact unless version is null.
+     */
+    @Transactional
+    public void patch(Long id, Map<String, Object> patch, Long version) 
+            throws BadResourceException, ResourceNotFoundException, PreconditionFailedException {
+        BadResourceException exc = new BadResourceException("Failed to patch contact");
+        Map<String, String> values = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : patch.entrySet()) {
+            String property = entry.getKey();
+            Object value = entry.getValue();
+            if (NOT_PATCHABLE.contains(property)) {
+                exc.addErrorMessage(property + ": cannot be patched");
+            }
+            else if (value != null && !(value instanceof String)) {
+                exc.addErrorMessage(property + ": must be a string or null");
+            }
+            else {
+                try {
+                    for (ConstraintViolation<Contact> violation 
+                            : validator.validateValue(Contact.class, property, value)) {
+                        exc.addErrorMessage(property + ": " + violation.getMessage());
+                    }
+                    values.put(property, (String) value);
+                } catch (IllegalArgumentException ex) {
+                    exc.addErrorMessage(property + ": unknown property");
+                }
+            }
+        }
+        if (!exc.getErrorMessages().isEmpty()) {
+            throw exc;
+        }
+        
+        if (values.isEmpty()) {
+            // nothing to write, but still answer for a missing or modified contact
+            Contact contact = findById(id);
+            if (version != null && !version.equals(contact.getVersion())) {
+                throw versionMismatch(id);
+            }
+        }
+        else {
+            responseCache.invalidate(id);
+            if (contactRepository.updateColumns(id, values, version) == 0) {
+                noRowMatched(id, version);
+            }
+        }
+    }
+    
+    @Transactional
     public void deleteById(Long id) throws ResourceNotFoundException {
-        if (!existsById(id)) { 
+        responseCache.invalidate(id);
+        if (contactRepository.delete(id, null) == 0) { 
             throw new ResourceNotFoundException("Cannot find contact with id: " + id);
         }
-        else {
-            contactRepository.deleteById(id);
+    }
+    
+    /**
+     * Delete a contact in a single DELETE, only if version is still its
+     * current version unless version is null.
+     */
+    @Transactional
+    public void deleteById(Long id, Long version) 
+            throws ResourceNotFoundException, PreconditionFailedException {
+        responseCache.invalidate(id);
+        if (contactRepository.delete(id, version) == 0) {
+            noRowMatched(id, version);
+        }
+    }
+    
+    /**
+     * Why a conditional statement over a contact matched no row: the contact
+     * is gone, or it is at another version than expected. Only costs a query
+     * when a version was expected.
+     */
+    private void noRowMatched(Long id, Long version) 
+            throws ResourceNotFoundException, PreconditionFailedException {
+        if (version != null && id != null && existsById(id)) {
+            throw versionMismatch(id);
+        }
+        throw new ResourceNotFoundException("Cannot find Contact with id: " + id);
+    }
+    
+    private PreconditionFailedException versionMismatch(Long id) {
+        return new PreconditionFailedException("Contact with id: " + id + " has been modified");
+    }
+    
+    /**
+     * Executed and coalesced calls of the operations that share the results
+     * of concurrent identical calls. In-memory counters only, read without
+     * a transaction so that metrics scrapes take no connection.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<CoalescingStatistics> getCoalescingStatistics() {
+        List<CoalescingStatistics> statistics = new ArrayList<>();
+        for (SingleFlight<?, ?> flight : getFlights()) {
+            CoalescingStatistics operation = new CoalescingStatistics();
+            operation.setOperation(flight.getName());
+            operation.setExecutions(flight.getExecutions());
+            operation.setCoalesced(flight.getCoalesced());
+            long calls = flight.getExecutions() + flight.getCoalesced();
+            operation.setCoalescingPercentage(calls == 0 ? 0 : flight.getCoalesced() * 100f / calls);
+            statistics.add(operation);
         }
+        return statistics;
+    }
+    
+    /**
+     * The operations that share the results of concurrent identical calls,
+     * for binding their counters as metrics once: reading the counters then
+     * does not go through this service and its timing.
+     */
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<SingleFlight<?, ?>> getFlights() {
+        return Arrays.asList(findByIdFlight, findByNameFlight);
     }
     
     public Long count() {
         return contactRepository.count();
     }
+    
+    /**
+     * Total for list responses that ask for it. Served from a short lived
+     * cache; without a name filter the value is the planner's estimate
+     * rather than an exact count.
+     */
+    public long countForListing(String name, SearchMode mode) {
+        String key = StringUtils.isEmpty(name) ? "" : mode + ":" + name;
+        long now = System.currentTimeMillis();
+        CachedCount cached = countCache.get(key);
+        if (cached != null && cached.expiresAt > now) {
+            return cached.value;
+        }
+        
+        long value;
+        if (key.isEmpty()) {
+            value = contactRepository.estimateCount();
+        }
+        else {
+            value = contactRepository.count(nameSpecification(name, mode));
+        }
+        if (countCache.size() >= COUNT_CACHE_MAX_ENTRIES) {
+            countCache.clear();
+        }
+        countCache.put(key, new CachedCount(value, now + countCacheTtlSeconds * 1000));
+        return value;
+    }
+    
+    private Specification<Contact> nameSpecification(String name, SearchMode mode) {
+        Contact filter = new Contact();
+        filter.setName(name);
+        return new ContactSpecification(filter, mode);
+    }
+    
+    private static class CachedCount {
+        
+        private final long value;
+        
+        private final long expiresAt;
+
+        CachedCount(long value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
 }
@@ -0,0 +1,87 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.specification;
+
+import com.dariawan.contactapp.domain.Contact;
+import com.dariawan.contactapp.domain.ContactCursor;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Seek predicate for keyset pagination: selects the rows that come after
+ * the cursor in (name, id) order. Must be combined with {@link #SORT} so the
+ * query can walk the contact_name_id_idx index instead of using OFFSET.
+ * <p>
+ * Contacts without a name sort last (hibernate.order_by.default_null_ordering,
+ * which matches the index order on PostgreSQL) and form their own section
+ * ordered by id only.
+ */
+public class ContactKeysetSpecification implements Specification<Contact> {
+
+    public static final Sort SORT = Sort.by("name", "id");
+    
+    private ContactCursor cursor;
+
+    public ContactKeysetSpecification(ContactCursor cursor) {
+        super();
+        this.cursor = cursor;
+    }
+
+    @Override
+    public Predicate toPredicate(Root<Contact> root, CriteriaQuery<?> cq,
+            CriteriaBuilder cb) {
+        
+        if (cursor.getName() == null) {
+            return cb.and(
+                    cb.isNull(root.get("name")),
+                    cb.greaterThan(root.get("id"), cursor.getId()));
+        }
+        return cb.or(
+                cb.greaterThan(root.get("name"), cursor.getName()),
+                cb.and(
+                        cb.equal(root.get("name"), cursor.getName()),
+                        cb.greaterThan(root.get("id"), cursor.getId())
+                ),
+                cb.isNull(root.get("name")));
+    }
+}
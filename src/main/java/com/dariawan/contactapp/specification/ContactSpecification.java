@@ -39,19 +39,30 @@
 package com.dariawan.contactapp.specification;
 
 import com.dariawan.contactapp.domain.Contact;
+import java.util.Locale;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import org.springframework.data.jpa.domain.Specification;
 
 public class ContactSpecification implements Specification<Contact> {
 
+    private static final char ESCAPE = '\\';
+    
     private Contact filter;
+    
+    private SearchMode mode;
 
     public ContactSpecification(Contact filter) {
+        this(filter, SearchMode.SUBSTRING);
+    }
+    
+    public ContactSpecification(Contact filter, SearchMode mode) {
         super();
         this.filter = filter;
+        this.mode = mode;
     }
 
     @Override
@@ -61,11 +72,13 @@ public class ContactSpecification implements Specification<Contact> {
         Predicate p = cb.disjunction();
 
         if (filter.getName() != null) {
-            p.getExpressions().add(cb.like(root.get("name"), "%" + filter.getName() + "%"));
+            // lower(name) is what the search indexes are built on
+            p.getExpressions().add(like(cb, cb.lower(root.get("name")), 
+                    filter.getName().toLowerCase(Locale.ROOT)));
         }
 
         if (filter.getPhone()!= null) {
-            p.getExpressions().add(cb.like(root.get("phone"), "%" + filter.getPhone() + "%"));
+            p.getExpressions().add(like(cb, root.get("phone"), filter.getPhone()));
         }
         
         /*
@@ -79,4 +92,23 @@ public class ContactSpecification implements Specification<Contact> {
 
         return p;
     }
+    
+    private Predicate like(CriteriaBuilder cb, Expression<String> expression, String term) {
+        String pattern = escape(term) + "%";
+        if (mode == SearchMode.SUBSTRING) {
+            pattern = "%" + pattern;
+        }
+        return cb.like(expression, pattern, ESCAPE);
+    }
+    
+    private static String escape(String term) {
+        StringBuilder sb = new StringBuilder(term.length());
+        for (char c : term.toCharArray()) {
+            if (c == '%' || c == '_' || c == ESCAPE) {
+                sb.append(ESCAPE);
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
 }
@@ -0,0 +1,13 @@
+CREATE TABLE contact
+(
+  id bigint AUTO_INCREMENT NOT NULL,
+  name varchar(255),
+  phone varchar(255),
+  email varchar(255),
+  address1 varchar(255),
+  address2 varchar(255),
+  address3 varchar(255),
+  postal_code varchar(255),
+  note varchar(4000),
+  CONSTRAINT contact_pkey PRIMARY KEY (id)
+);
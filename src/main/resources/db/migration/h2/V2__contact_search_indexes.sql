@@ -0,0 +1,3 @@
+-- H2 has neither expression indexes nor pg_trgm, so only the keyset index
+-- is created here; searches still work, just without index support.
+CREATE INDEX contact_name_id_idx ON contact (name, id);
@@ -0,0 +1,4 @@
+-- Must match allocationSize of the @SequenceGenerator on Contact.id, plain
+-- inserts take their id from the same sequence.
+CREATE SEQUENCE contact_id_seq START WITH 1 INCREMENT BY 50;
+ALTER TABLE contact ALTER COLUMN id SET DEFAULT NEXT VALUE FOR contact_id_seq;
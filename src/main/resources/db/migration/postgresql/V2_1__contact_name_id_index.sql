@@ -0,0 +1,2 @@
+-- keyset pagination: ORDER BY name, id with (name, id) > (?, ?)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS contact_name_id_idx ON contact (name, id);
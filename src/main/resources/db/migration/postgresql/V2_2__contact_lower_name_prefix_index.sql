@@ -0,0 +1,3 @@
+-- case-insensitive prefix search: lower(name) LIKE 'abc%'
+-- text_pattern_ops makes LIKE usable on the index regardless of the collation
+CREATE INDEX CONCURRENTLY IF NOT EXISTS contact_lower_name_prefix_idx ON contact (lower(name) text_pattern_ops);
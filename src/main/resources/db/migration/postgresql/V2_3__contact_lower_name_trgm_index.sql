@@ -0,0 +1,2 @@
+-- case-insensitive substring search: lower(name) LIKE '%abc%'
+CREATE INDEX CONCURRENTLY IF NOT EXISTS contact_lower_name_trgm_idx ON contact USING gin (lower(name) gin_trgm_ops);
@@ -0,0 +1,8 @@
+-- Indexes for keyset pagination and name search, each built without blocking
+-- writes to contact in a migration of its own (V2_1 to V2_3): Flyway runs
+-- CREATE INDEX CONCURRENTLY outside a transaction and cannot mix it with
+-- transactional statements in one migration.
+
+-- case-insensitive substring search (V2_3) needs trigram operator classes;
+-- creating the extension needs a role allowed to do so (superuser before PostgreSQL 13)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
@@ -0,0 +1,4 @@
+-- Contact ids are handed out by Hibernate's pooled optimizer in blocks of 50,
+-- which lets inserts be sent as JDBC batches (IDENTITY disables batching).
+-- Must match allocationSize of the @SequenceGenerator on Contact.id.
+ALTER SEQUENCE contact_id_seq INCREMENT BY 50;
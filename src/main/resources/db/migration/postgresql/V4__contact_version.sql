@@ -0,0 +1,2 @@
+-- optimistic locking and ETags, see Contact.version
+ALTER TABLE contact ADD COLUMN version bigint NOT NULL DEFAULT 0;
@@ -0,0 +1,110 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.openapi;
+
+import com.dariawan.contactapp.ContactApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Writes openapi.json and openapi.yaml to the directory given as argument,
+ * run by mvn package (-Dopenapi.skip=true skips it) before the jar is built.
+ * Starts the application with springdoc scanning, as the dev profile does,
+ * on an in-memory H2 database, and saves what /v3/api-docs answers. The
+ * servers springdoc derives from the request (this throwaway port) are
+ * left out, clients resolve the paths against where they got the document.
+ * <p>
+ * Lives in src/openapi/java, compiled with the application even when the
+ * tests are skipped, and is left out of the jar.
+ */
+public class OpenApiDocumentGenerator {
+    
+    private static final Logger logger = LoggerFactory.getLogger(OpenApiDocumentGenerator.class);
+    
+    public static void main(String[] args) throws IOException {
+        File directory = new File(args[0]);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        ObjectNode document;
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ContactApplication.class)
+                .profiles("dev")
+                // the H2 driver is a test dependency, the test resources may not have been built
+                .properties("server.port=0", 
+                        "springdoc.api-docs.enabled=true",
+                        "spring.datasource.url=jdbc:h2:mem:openapi;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+                        "spring.datasource.username=sa",
+                        "spring.datasource.password=",
+                        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect")
+                .run()) {
+            String port = context.getEnvironment().getProperty("local.server.port");
+            String path = context.getEnvironment().getProperty("springdoc.api-docs.path", "/v3/api-docs");
+            document = fetch(new URL("http://localhost:" + port + path));
+        }
+        document.remove("servers");
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(new File(directory, "openapi.json"), document);
+        new YAMLMapper().writeValue(new File(directory, "openapi.yaml"), document);
+        logger.info("OpenAPI document written to {}", directory);
+    }
+    
+    private static ObjectNode fetch(URL url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestProperty("Accept", "application/json");
+        if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+            throw new IOException(url + " answered " + connection.getResponseCode());
+        }
+        try (InputStream in = connection.getInputStream()) {
+            return (ObjectNode) new ObjectMapper().readTree(in);
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
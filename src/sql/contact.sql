@@ -14,6 +14,9 @@ CREATE TABLE contact
 
 ALTER TABLE contact OWNER TO barista;
 
+-- indexes are created by the Flyway migrations in src/main/resources/db/migration,
+-- which baseline an existing contact table at version 1 on first start
+
 insert into contact (name, phone, email)
 values 
 ('Monkey D. Luffy', '09012345678', 'luffy@strawhatpirat.es'),
@@ -0,0 +1,175 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.benchmark;
+
+import com.dariawan.contactapp.service.ContactService;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Measures heap allocation and CPU time per list request, in the read-only
+ * transaction of ContactService against the same request in a read-write
+ * transaction, where Hibernate snapshots every loaded contact and dirty
+ * checks it on commit. Fails when read-only does not allocate less. Runs on
+ * the embedded H2 database, with:
+ * <pre>mvn test -Pbenchmark -Dtest=ContactListBenchmark</pre>
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("h2")
+public class ContactListBenchmark {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    
+    private static final String EMAIL = "list@bench.invalid";
+    
+    private static final int ROWS = 1000;
+    
+    private static final int PAGE_SIZE = 500;
+    
+    private static final int WARMUP = 200;
+    
+    private static final int ROUNDS = 5;
+    
+    private static final int ITERATIONS = 100;
+    
+    @Autowired 
+    private DataSource dataSource;
+    
+    @Autowired 
+    private ContactService contactService;
+    
+    @Autowired 
+    private TransactionTemplate transactionTemplate;
+    
+    private final com.sun.management.ThreadMXBean threads = 
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    
+    @Before
+    public void seedBenchmarkData() throws Exception {
+        try (Connection conn = dataSource.getConnection()) {
+            PreparedStatement ps = conn.prepareStatement("insert into contact (name, email, note) values (?, ?, ?)");
+            for (int i = 0; i < ROWS; i++) {
+                ps.setString(1, "Bench Contact " + i);
+                ps.setString(2, EMAIL);
+                ps.setString(3, "Note of bench contact " + i);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+    
+    @After
+    public void cleanBenchmarkData() throws Exception {
+        try (Connection conn = dataSource.getConnection()) {
+            PreparedStatement ps = conn.prepareStatement("delete from contact where email = ?");
+            ps.setString(1, EMAIL);
+            ps.executeUpdate();
+        }
+    }
+    
+    @Test
+    public void readOnlyListAllocatesLess() {
+        Supplier<?> readOnlyRequest = () -> contactService.findSlice(1, PAGE_SIZE);
+        Supplier<?> readWriteRequest = () -> transactionTemplate.execute(
+                status -> contactService.findSlice(1, PAGE_SIZE));
+        for (int i = 0; i < WARMUP; i++) {
+            readOnlyRequest.get();
+            readWriteRequest.get();
+        }
+        
+        // alternate the two, keeping the best round of each
+        Sample readOnly = null;
+        Sample readWrite = null;
+        for (int round = 0; round < ROUNDS; round++) {
+            readOnly = Sample.best(readOnly, measure(readOnlyRequest));
+            readWrite = Sample.best(readWrite, measure(readWriteRequest));
+        }
+        
+        logger.info("read-only:  {} bytes, {} us cpu per request", readOnly.bytes, readOnly.cpuMicros);
+        logger.info("read-write: {} bytes, {} us cpu per request", readWrite.bytes, readWrite.cpuMicros);
+        assertTrue("read-only list allocates " + readOnly.bytes + " bytes, read-write " + readWrite.bytes, 
+                readOnly.bytes < readWrite.bytes);
+    }
+    
+    private Sample measure(Supplier<?> request) {
+        long threadId = Thread.currentThread().getId();
+        long bytes = threads.getThreadAllocatedBytes(threadId);
+        long cpu = threads.getCurrentThreadCpuTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            request.get();
+        }
+        return new Sample((threads.getThreadAllocatedBytes(threadId) - bytes) / ITERATIONS, 
+                (threads.getCurrentThreadCpuTime() - cpu) / ITERATIONS / 1000);
+    }
+    
+    private static class Sample {
+        
+        private final long bytes;
+        
+        private final long cpuMicros;
+
+        Sample(long bytes, long cpuMicros) {
+            this.bytes = bytes;
+            this.cpuMicros = cpuMicros;
+        }
+        
+        static Sample best(Sample a, Sample b) {
+            if (a == null) {
+                return b;
+            }
+            return new Sample(Math.min(a.bytes, b.bytes), Math.min(a.cpuMicros, b.cpuMicros));
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.benchmark;
+
+import com.dariawan.contactapp.benchmark.LoadGenerator.Request;
+import com.dariawan.contactapp.benchmark.LoadGenerator.Scenario;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.HdrHistogram.Histogram;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Throughput and latency of the whole stack, Tomcat to the JDBC pool, on the
+ * embedded H2 database in PostgreSQL mode. Seeds load.contacts contacts, then
+ * sends load.rate requests per second of a read/search/write mix for
+ * load.duration seconds, after load.warmup seconds of the same. Fails when a
+ * scenario's p50, p99 or p999 is over its budget, or a request failed. Run with:
+ * <pre>mvn test -Pbenchmark -Dtest=ContactLoadBenchmark -Dload.rate=500 -Dload.budget.p99=50</pre>
+ * Budgets are in milliseconds, load.budget.read.p99 overrides load.budget.p99
+ * for the read scenario only. load.mix sets the weights, as read:70,search:20,write:10.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("h2")
+public class ContactLoadBenchmark {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    
+    private static final String EMAIL = "load@bench.invalid";
+    
+    private static final String[] PERCENTILES = { "p50", "p99", "p999" };
+    
+    private static final double[] PERCENTILE_VALUES = { 50, 99, 99.9 };
+    
+    private static final int CONTACTS = Integer.getInteger("load.contacts", 10000);
+    
+    private static final int RATE = Integer.getInteger("load.rate", 200);
+    
+    private static final int WARMUP_SECONDS = Integer.getInteger("load.warmup", 10);
+    
+    private static final int DURATION_SECONDS = Integer.getInteger("load.duration", 30);
+    
+    private static final int CONNECTIONS = Integer.getInteger("load.connections", 32);
+    
+    @LocalServerPort
+    private int port;
+    
+    @Autowired 
+    private DataSource dataSource;
+    
+    @BeforeClass
+    public static void keepConnectionsAlive() {
+        // HttpURLConnection keeps only 5 idle connections per host by default
+        System.setProperty("http.maxConnections", String.valueOf(CONNECTIONS));
+    }
+    
+    @After
+    public void cleanBenchmarkData() throws Exception {
+        try (Connection conn = dataSource.getConnection()) {
+            PreparedStatement ps = conn.prepareStatement("delete from contact where email = ?");
+            ps.setString(1, EMAIL);
+            ps.executeUpdate();
+        }
+    }
+    
+    @Test
+    public void latencyWithinBudget() throws Exception {
+        long[] ids = seed();
+        
+        LoadGenerator load = new LoadGenerator("http://localhost:" + port, CONNECTIONS);
+        load.add(new Scenario("read", weight("read", 70), random -> 
+                new Request("GET", "/api/contacts/" + ids[random.nextInt(ids.length)], null)));
+        load.add(new Scenario("search", weight("search", 20), random -> 
+                new Request("GET", "/api/contacts?mode=PREFIX&name=load%20contact%20" + random.nextInt(100), null)));
+        load.add(new Scenario("write", weight("write", 10), random -> 
+                new Request("POST", "/api/contacts", "{\"name\":\"Load Contact New " + random.nextInt() 
+                        + "\",\"email\":\"" + EMAIL + "\"}")));
+        
+        load.run(RATE, WARMUP_SECONDS, false);
+        load.run(RATE, DURATION_SECONDS, true);
+        
+        List<String> failures = new ArrayList<>();
+        for (Scenario scenario : load.getScenarios()) {
+            Histogram latencies = scenario.getLatencies();
+            StringBuilder report = new StringBuilder(String.format("%-7s requests=%d errors=%d", 
+                    scenario.getName(), latencies.getTotalCount(), scenario.getErrors()));
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                double millis = latencies.getValueAtPercentile(PERCENTILE_VALUES[i]) 
+                        / (double) TimeUnit.MILLISECONDS.toNanos(1);
+                report.append(String.format(" %s=%.2fms", PERCENTILES[i], millis));
+                String budget = System.getProperty("load.budget." + scenario.getName() + "." + PERCENTILES[i], 
+                        System.getProperty("load.budget." + PERCENTILES[i]));
+                if (budget != null && millis > Double.parseDouble(budget)) {
+                    failures.add(String.format("%s %s %.2fms over budget %sms", 
+                            scenario.getName(), PERCENTILES[i], millis, budget));
+                }
+            }
+            if (scenario.getErrors() > 0) {
+                failures.add(scenario.getName() + " had " + scenario.getErrors() + " failed requests");
+            }
+            logger.info(report.toString());
+        }
+        assertTrue(String.join("; ", failures), failures.isEmpty());
+    }
+    
+    private static int weight(String scenario, int defaultWeight) {
+        for (String entry : System.getProperty("load.mix", "").split(",")) {
+            String[] weight = entry.split(":");
+            if (weight.length == 2 && weight[0].trim().equals(scenario)) {
+                return Integer.parseInt(weight[1].trim());
+            }
+        }
+        return System.getProperty("load.mix") == null ? defaultWeight : 0;
+    }
+    
+    /**
+     * Inserts the contacts and returns their ids. Plain inserts take ids from
+     * the pooled sequence, so they are not consecutive.
+     */
+    private long[] seed() throws Exception {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            PreparedStatement ps = conn.prepareStatement(
+                    "insert into contact (name, phone, email, note) values (?, ?, ?, ?)");
+            for (int i = 0; i < CONTACTS; i++) {
+                ps.setString(1, "Load Contact " + i);
+                ps.setString(2, "+62 482 " + (1000000 + i));
+                ps.setString(3, EMAIL);
+                ps.setString(4, "Note of load contact " + i);
+                ps.addBatch();
+                if (i % 1000 == 999) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+            conn.commit();
+            
+            long[] ids = new long[CONTACTS];
+            ps = conn.prepareStatement("select id from contact where email = ? order by id");
+            ps.setString(1, EMAIL);
+            ResultSet rs = ps.executeQuery();
+            for (int i = 0; i < CONTACTS && rs.next(); i++) {
+                ids[i] = rs.getLong(1);
+            }
+            return ids;
+        }
+    }
+}
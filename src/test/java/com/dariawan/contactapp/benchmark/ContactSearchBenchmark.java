@@ -0,0 +1,185 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.benchmark;
+
+import com.dariawan.contactapp.service.ContactService;
+import com.dariawan.contactapp.specification.SearchMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Random;
+import javax.sql.DataSource;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * Measures name search latency at growing table sizes and fails when it grows
+ * (close to) linearly with the number of rows, i.e. when the search indexes
+ * are not used. Meant for PostgreSQL, run with:
+ * <pre>mvn test -Pbenchmark -Dbenchmark.sizes=10000,100000</pre>
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ContactSearchBenchmark {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    
+    private static final String EMAIL = "search@bench.invalid";
+    
+    private static final int NEEDLES = 10;
+    
+    private static final int WARMUP = 20;
+    
+    private static final int ITERATIONS = 50;
+    
+    @Autowired 
+    private DataSource dataSource;
+    
+    @Autowired 
+    private ContactService contactService;
+    
+    private final Random random = new Random(42);
+    
+    @After
+    public void cleanBenchmarkData() throws Exception {
+        try (Connection conn = dataSource.getConnection()) {
+            PreparedStatement ps = conn.prepareStatement("delete from contact where email = ?");
+            ps.setString(1, EMAIL);
+            ps.executeUpdate();
+        }
+    }
+    
+    @Test
+    public void searchLatencyIsSublinear() throws Exception {
+        int[] sizes = Arrays.stream(System.getProperty("benchmark.sizes", "10000,100000").split(","))
+                .mapToInt(Integer::parseInt)
+                .sorted()
+                .toArray();
+        
+        int rows = 0;
+        double[] prefix = new double[sizes.length];
+        double[] substring = new double[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            seed(rows, sizes[i]);
+            rows = sizes[i];
+            
+            prefix[i] = medianMillis("zyxwv", SearchMode.PREFIX);
+            substring[i] = medianMillis("needle", SearchMode.SUBSTRING);
+            logger.info("rows={} prefix={}ms substring={}ms", rows, 
+                    String.format("%.3f", prefix[i]), String.format("%.3f", substring[i]));
+        }
+        
+        int last = sizes.length - 1;
+        double growth = (double) sizes[last] / sizes[0];
+        assertTrue("prefix search grows with table size: " + Arrays.toString(prefix), 
+                prefix[last] / prefix[0] < growth / 2);
+        assertTrue("substring search grows with table size: " + Arrays.toString(substring), 
+                substring[last] / substring[0] < growth / 2);
+    }
+    
+    private double medianMillis(String name, SearchMode mode) {
+        for (int i = 0; i < WARMUP; i++) {
+            contactService.findSliceByName(name, mode, 1, NEEDLES * 2);
+        }
+        long[] samples = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            int found = contactService.findSliceByName(name, mode, 1, NEEDLES * 2).getNumberOfElements();
+            samples[i] = System.nanoTime() - start;
+            assertTrue(found == NEEDLES);
+        }
+        Arrays.sort(samples);
+        return samples[ITERATIONS / 2] / 1_000_000.0;
+    }
+    
+    /**
+     * Grows the table from current to target rows. The first call also adds the
+     * few needle rows the searches look for, everything else is random noise.
+     */
+    private void seed(int current, int target) throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            PreparedStatement ps = conn.prepareStatement("insert into contact (name, email) values (?, ?)");
+            if (current == 0) {
+                for (int i = 0; i < NEEDLES; i++) {
+                    ps.setString(1, "Zyxwv Needle " + i);
+                    ps.setString(2, EMAIL);
+                    ps.addBatch();
+                }
+            }
+            for (int i = current; i < target; i++) {
+                ps.setString(1, randomName());
+                ps.setString(2, EMAIL);
+                ps.addBatch();
+                if (i % 1000 == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+            conn.commit();
+            
+            if ("PostgreSQL".equals(conn.getMetaData().getDatabaseProductName())) {
+                conn.setAutoCommit(true);
+                conn.createStatement().execute("ANALYZE contact");
+            }
+        }
+    }
+    
+    private String randomName() {
+        StringBuilder sb = new StringBuilder();
+        for (int word = 0; word < 3; word++) {
+            if (word > 0) {
+                sb.append(' ');
+            }
+            int length = 3 + random.nextInt(6);
+            for (int i = 0; i < length; i++) {
+                sb.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return sb.toString();
+    }
+}
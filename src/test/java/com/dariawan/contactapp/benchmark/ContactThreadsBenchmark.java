@@ -0,0 +1,225 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.benchmark;
+
+import com.dariawan.contactapp.ContactApplication;
+import com.dariawan.contactapp.benchmark.LoadGenerator.Request;
+import com.dariawan.contactapp.benchmark.LoadGenerator.Scenario;
+import com.dariawan.contactapp.concurrent.VirtualThreads;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Compares request handling on platform threads with virtual threads
+ * (contact.threads.virtual) at threads.concurrency clients in flight, on the
+ * embedded H2 database: requests per second, p99 latency, and the resident
+ * memory and platform threads added per in-flight request. Needs Java 21 or
+ * later, run with:
+ * <pre>mvn test -Pbenchmark -Dtest=ContactThreadsBenchmark -Dthreads.concurrency=2000</pre>
+ */
+public class ContactThreadsBenchmark {
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    
+    private static final int CONTACTS = Integer.getInteger("threads.contacts", 10000);
+    
+    private static final int CONCURRENCY = Integer.getInteger("threads.concurrency", 1000);
+    
+    private static final int WARMUP_SECONDS = Integer.getInteger("threads.warmup", 10);
+    
+    private static final int DURATION_SECONDS = Integer.getInteger("threads.duration", 30);
+    
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    
+    @Test
+    public void virtualThreadsNeedFewerPlatformThreads() throws Exception {
+        assumeTrue("virtual threads need Java 21 or later", VirtualThreads.isSupported());
+        // HttpURLConnection keeps only 5 idle connections per host by default
+        System.setProperty("http.maxConnections", String.valueOf(CONCURRENCY));
+        
+        Result platform = measure(false);
+        Result virtual = measure(true);
+        
+        for (Result result : new Result[] { platform, virtual }) {
+            logger.info("{}: {} requests/s, p99 {}ms, {} errors, {} KB resident and {} platform threads "
+                    + "per 100 in-flight requests", result.mode, String.format("%.0f", result.throughput), 
+                    String.format("%.2f", result.p99Millis), result.errors, 
+                    result.residentBytes * 100 / CONCURRENCY / 1024, 
+                    String.format("%.1f", result.platformThreads * 100.0 / CONCURRENCY));
+        }
+        assertTrue("virtual threads started " + virtual.platformThreads + " platform threads, platform " 
+                + platform.platformThreads, virtual.platformThreads < platform.platformThreads);
+    }
+    
+    private Result measure(boolean virtual) throws Exception {
+        String mode = virtual ? "virtual" : "platform";
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(ContactApplication.class)
+                .profiles("h2")
+                // thread per request in both modes, not the bounded executor of contact.async,
+                // and every read goes to the database
+                .properties("server.port=0", 
+                        "contact.async.enabled=false",
+                        "contact.response-cache.enabled=false",
+                        "contact.threads.virtual=" + virtual, 
+                        "spring.datasource.url=jdbc:h2:mem:threads-" + mode + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1")
+                .run()) {
+            long[] ids = seed(context.getBean(DataSource.class));
+            String port = context.getEnvironment().getProperty("local.server.port");
+            
+            LoadGenerator warmup = load(port, ids);
+            warmup.runClosed(CONCURRENCY, WARMUP_SECONDS);
+            
+            System.gc();
+            long idleResident = residentBytes();
+            int idleThreads = threads.getThreadCount();
+            AtomicLong peakResident = new AtomicLong(idleResident);
+            AtomicLong peakThreads = new AtomicLong(idleThreads);
+            ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+            sampler.scheduleAtFixedRate(() -> {
+                peakResident.accumulateAndGet(residentBytes(), Math::max);
+                peakThreads.accumulateAndGet(threads.getThreadCount(), Math::max);
+            }, 0, 100, TimeUnit.MILLISECONDS);
+            
+            LoadGenerator load = load(port, ids);
+            long completed;
+            try {
+                completed = load.runClosed(CONCURRENCY, DURATION_SECONDS);
+            } finally {
+                sampler.shutdownNow();
+            }
+            
+            Result result = new Result();
+            result.mode = mode;
+            result.throughput = completed / (double) DURATION_SECONDS;
+            for (Scenario scenario : load.getScenarios()) {
+                result.p99Millis = scenario.getLatencies().getValueAtPercentile(99) / 1_000_000.0;
+                result.errors = scenario.getErrors();
+            }
+            // the client threads are the same in both modes, they cancel out in the comparison
+            result.residentBytes = peakResident.get() - idleResident;
+            result.platformThreads = peakThreads.get() - idleThreads;
+            return result;
+        }
+    }
+    
+    private LoadGenerator load(String port, long[] ids) {
+        LoadGenerator load = new LoadGenerator("http://localhost:" + port, CONCURRENCY);
+        load.add(new Scenario("read", 1, random -> 
+                new Request("GET", "/api/contacts/" + ids[random.nextInt(ids.length)], null)));
+        return load;
+    }
+    
+    /**
+     * Resident set size of this process on Linux, the used heap elsewhere.
+     */
+    private static long residentBytes() {
+        Path status = Paths.get("/proc/self/status");
+        if (Files.isReadable(status)) {
+            try {
+                for (String line : Files.readAllLines(status)) {
+                    if (line.startsWith("VmRSS:")) {
+                        return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                    }
+                }
+            } catch (IOException ex) {
+                // fall back to the heap
+            }
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+    
+    private static long[] seed(DataSource dataSource) throws Exception {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            PreparedStatement ps = conn.prepareStatement("insert into contact (name, email) values (?, ?)");
+            for (int i = 0; i < CONTACTS; i++) {
+                ps.setString(1, "Threads Contact " + i);
+                ps.setString(2, "threads@bench.invalid");
+                ps.addBatch();
+                if (i % 1000 == 999) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+            conn.commit();
+            
+            // plain inserts take ids from the pooled sequence, so they are not consecutive
+            long[] ids = new long[CONTACTS];
+            ResultSet rs = conn.createStatement().executeQuery("select id from contact order by id");
+            for (int i = 0; i < CONTACTS && rs.next(); i++) {
+                ids[i] = rs.getLong(1);
+            }
+            return ids;
+        }
+    }
+    
+    private static class Result {
+        
+        private String mode;
+        
+        private double throughput;
+        
+        private double p99Millis;
+        
+        private long errors;
+        
+        private long residentBytes;
+        
+        private long platformThreads;
+    }
+}
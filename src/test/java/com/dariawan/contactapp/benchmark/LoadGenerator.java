@@ -0,0 +1,253 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Open-loop HTTP load: requests are started on a fixed schedule, whether or
+ * not earlier ones have completed, and latency is measured from the time a
+ * request was scheduled to start. A stalled server therefore shows up as the
+ * queueing delay of every request it held up, not as one slow request
+ * (no coordinated omission).
+ */
+class LoadGenerator {
+    
+    /**
+     * One kind of request. The random source picks what to ask for.
+     */
+    static class Scenario {
+        
+        private final String name;
+        
+        private final int weight;
+        
+        private final Function<Random, Request> requests;
+        
+        private final Histogram latencies = new ConcurrentHistogram(TimeUnit.MINUTES.toNanos(1), 3);
+        
+        private final LongAdder errors = new LongAdder();
+
+        Scenario(String name, int weight, Function<Random, Request> requests) {
+            this.name = name;
+            this.weight = weight;
+            this.requests = requests;
+        }
+        
+        String getName() {
+            return name;
+        }
+        
+        Histogram getLatencies() {
+            return latencies;
+        }
+        
+        long getErrors() {
+            return errors.sum();
+        }
+    }
+    
+    static class Request {
+        
+        private final String method;
+        
+        private final String path;
+        
+        private final String body;
+
+        Request(String method, String path, String body) {
+            this.method = method;
+            this.path = path;
+            this.body = body;
+        }
+    }
+    
+    private final String baseUrl;
+    
+    private final int connections;
+    
+    private final Map<String, Scenario> scenarios = new LinkedHashMap<>();
+    
+    private final Random random = new Random(42);
+    
+    private int totalWeight;
+
+    LoadGenerator(String baseUrl, int connections) {
+        this.baseUrl = baseUrl;
+        this.connections = connections;
+    }
+    
+    void add(Scenario scenario) {
+        if (scenario.weight > 0) {
+            scenarios.put(scenario.name, scenario);
+            totalWeight += scenario.weight;
+        }
+    }
+    
+    Iterable<Scenario> getScenarios() {
+        return scenarios.values();
+    }
+    
+    /**
+     * Sends rate requests per second for the given time, in the scenarios'
+     * proportions, and waits for all of them. Latencies are only recorded
+     * when record is set, so a first run can warm up the server.
+     */
+    void run(int rate, long seconds, boolean record) throws InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(connections);
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long requests = seconds * rate;
+        long start = System.nanoTime();
+        for (long i = 0; i < requests; i++) {
+            long scheduled = start + i * interval;
+            long delay = scheduled - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            Scenario scenario = pick();
+            Request request = scenario.requests.apply(random);
+            workers.execute(() -> {
+                boolean ok = send(request);
+                if (record) {
+                    // from the scheduled start, so time spent queued for a connection counts
+                    scenario.latencies.recordValue(Math.min(System.nanoTime() - scheduled, 
+                            scenario.latencies.getHighestTrackableValue()));
+                    if (!ok) {
+                        scenario.errors.increment();
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(1, TimeUnit.MINUTES);
+    }
+    
+    /**
+     * Keeps concurrency requests in flight for the given time, each client
+     * sending its next request once the previous one completed, and returns
+     * the number of requests completed. Latencies are recorded from the send.
+     */
+    long runClosed(int concurrency, long seconds) throws InterruptedException {
+        ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+        LongAdder completed = new LongAdder();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        for (int i = 0; i < concurrency; i++) {
+            clients.execute(() -> {
+                Random clientRandom = new Random();
+                while (System.nanoTime() < end) {
+                    Scenario scenario = pick(clientRandom);
+                    long start = System.nanoTime();
+                    boolean ok = send(scenario.requests.apply(clientRandom));
+                    scenario.latencies.recordValue(Math.min(System.nanoTime() - start, 
+                            scenario.latencies.getHighestTrackableValue()));
+                    if (!ok) {
+                        scenario.errors.increment();
+                    }
+                    completed.increment();
+                }
+            });
+        }
+        clients.shutdown();
+        clients.awaitTermination(seconds + 60, TimeUnit.SECONDS);
+        return completed.sum();
+    }
+    
+    private Scenario pick() {
+        return pick(random);
+    }
+    
+    private Scenario pick(Random random) {
+        int ticket = random.nextInt(totalWeight);
+        for (Scenario scenario : scenarios.values()) {
+            ticket -= scenario.weight;
+            if (ticket < 0) {
+                return scenario;
+            }
+        }
+        throw new IllegalStateException("no scenario");
+    }
+    
+    private boolean send(Request request) {
+        HttpURLConnection conn = null;
+        try {
+            conn = (HttpURLConnection) new URL(baseUrl + request.path).openConnection();
+            conn.setRequestMethod(request.method);
+            conn.setRequestProperty("Accept", "application/json");
+            if (request.body != null) {
+                conn.setDoOutput(true);
+                conn.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream out = conn.getOutputStream()) {
+                    out.write(request.body.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            int status = conn.getResponseCode();
+            // read to the end, so that the connection goes back to the keep-alive cache
+            try (InputStream in = status < 400 ? conn.getInputStream() : conn.getErrorStream()) {
+                if (in != null) {
+                    byte[] buffer = new byte[8192];
+                    while (in.read(buffer) >= 0) {
+                        // discard
+                    }
+                }
+            }
+            return status < 400;
+        } catch (IOException ex) {
+            if (conn != null) {
+                conn.disconnect();
+            }
+            return false;
+        }
+    }
+}
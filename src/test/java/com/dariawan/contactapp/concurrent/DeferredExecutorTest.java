@@ -0,0 +1,147 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.concurrent;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.web.context.request.async.DeferredResult;
+
+public class DeferredExecutorTest {
+    
+    private DeferredExecutor executor;
+    
+    @After
+    public void tearDown() {
+        executor.destroy();
+    }
+    
+    @Test
+    public void testWorkRunsOffTheCallingThread() throws Exception {
+        executor = new DeferredExecutor(true, 1, 1, Duration.ofSeconds(5), task -> task);
+        Thread caller = Thread.currentThread();
+        
+        DeferredResult<Thread> result = executor.execute(Thread::currentThread, null);
+        assertNotEquals(caller, await(result));
+    }
+    
+    @Test
+    public void testFullQueueIsOverloaded() throws Exception {
+        executor = new DeferredExecutor(true, 1, 1, Duration.ofSeconds(5), task -> task);
+        CountDownLatch release = new CountDownLatch(1);
+        
+        // one running, one queued, the third one is rejected
+        DeferredResult<String> running = executor.execute(() -> await(release), "overloaded");
+        DeferredResult<String> queued = executor.execute(() -> "queued", "overloaded");
+        DeferredResult<String> rejected = executor.execute(() -> "rejected", "overloaded");
+        assertEquals("overloaded", rejected.getResult());
+        
+        release.countDown();
+        assertEquals("released", await(running));
+        assertEquals("queued", await(queued));
+    }
+    
+    @Test
+    public void testWorkNotStartedInTimeIsOverloaded() throws Exception {
+        executor = new DeferredExecutor(true, 1, 1, Duration.ofMillis(100), task -> task);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean ran = new AtomicBoolean();
+        
+        DeferredResult<String> running = executor.execute(() -> await(release), "overloaded");
+        DeferredResult<String> queued = executor.execute(() -> {
+            ran.set(true);
+            return "queued";
+        }, "overloaded");
+        assertEquals("overloaded", await(queued));
+        
+        release.countDown();
+        assertEquals("released", await(running));
+        Thread.sleep(100);
+        assertFalse("dropped work ran", ran.get());
+    }
+    
+    @Test
+    public void testStartedWorkReportsItsOwnResult() throws Exception {
+        executor = new DeferredExecutor(true, 1, 1, Duration.ofMillis(100), task -> task);
+        CountDownLatch release = new CountDownLatch(1);
+        
+        DeferredResult<String> running = executor.execute(() -> await(release), "overloaded");
+        // well past the timeout, the running work is not answered as overloaded
+        Thread.sleep(300);
+        assertFalse(running.hasResult());
+        
+        release.countDown();
+        assertEquals("released", await(running));
+    }
+    
+    @Test
+    public void testDisabledRunsOnTheCallingThread() {
+        executor = new DeferredExecutor(false, 1, 1, Duration.ofSeconds(5), task -> task);
+        
+        DeferredResult<Thread> result = executor.execute(Thread::currentThread, null);
+        assertTrue(result.hasResult());
+        assertEquals(Thread.currentThread(), result.getResult());
+    }
+    
+    private static String await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return "released";
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <T> T await(DeferredResult<T> result) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!result.hasResult()) {
+            assertTrue("no result", System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+        return (T) result.getResult();
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SingleFlightTest {
+    
+    private static final int CALLERS = 16;
+    
+    private ExecutorService executor;
+    
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(CALLERS);
+    }
+    
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+    
+    @Test
+    public void testConcurrentCallsShareOneLoad() throws Exception {
+        SingleFlight<Long, Object> flight = new SingleFlight<>("test");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Object result = new Object();
+        
+        List<Future<Object>> calls = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            calls.add(executor.submit(() -> flight.execute(1L, () -> {
+                loads.incrementAndGet();
+                await(release);
+                return result;
+            })));
+        }
+        // let every caller arrive while the first load is still running
+        waitFor(() -> flight.getCoalesced() == CALLERS - 1);
+        release.countDown();
+        
+        for (Future<Object> call : calls) {
+            assertSame(result, call.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, flight.getExecutions());
+        assertEquals(CALLERS - 1, flight.getCoalesced());
+    }
+    
+    @Test
+    public void testExceptionIsSharedAndNotRetained() throws Exception {
+        SingleFlight<Long, Object> flight = new SingleFlight<>("test");
+        CountDownLatch release = new CountDownLatch(1);
+        
+        List<Future<Object>> calls = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            calls.add(executor.submit(() -> flight.execute(1L, () -> {
+                await(release);
+                throw new IllegalStateException("load failed");
+            })));
+        }
+        waitFor(() -> flight.getCoalesced() == 1);
+        release.countDown();
+        
+        for (Future<Object> call : calls) {
+            try {
+                call.get(5, TimeUnit.SECONDS);
+                fail("load failure expected");
+            } catch (ExecutionException ex) {
+                assertTrue(ex.getCause() instanceof IllegalStateException);
+            }
+        }
+        // the failure is not cached, the next call loads again
+        assertEquals("loaded", flight.execute(1L, () -> "loaded"));
+        assertEquals(2, flight.getExecutions());
+    }
+    
+    @Test
+    public void testDifferentKeysDoNotCoalesce() {
+        SingleFlight<Long, Long> flight = new SingleFlight<>("test");
+        assertEquals(Long.valueOf(1), flight.execute(1L, () -> 1L));
+        assertEquals(Long.valueOf(2), flight.execute(2L, () -> 2L));
+        assertEquals(2, flight.getExecutions());
+        assertEquals(0, flight.getCoalesced());
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("condition not reached");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
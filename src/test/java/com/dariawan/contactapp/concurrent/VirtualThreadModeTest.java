@@ -0,0 +1,106 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.concurrent;
+
+import com.dariawan.contactapp.domain.Contact;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+/**
+ * The application in contact.threads.virtual mode, over HTTP. Skipped before
+ * Java 21, except in the jdk21 Maven profile, which requires it to run.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "contact.threads.virtual=true",
+    "spring.datasource.url=jdbc:h2:mem:virtual-threads;MODE=PostgreSQL;DB_CLOSE_DELAY=-1" })
+@ActiveProfiles("h2")
+public class VirtualThreadModeTest {
+    
+    /**
+     * Set by the jdk21 profile, fails instead of skipping without virtual threads.
+     */
+    private static final String REQUIRED = "contact.test.virtual-threads.required";
+    
+    @Autowired 
+    private TestRestTemplate restTemplate;
+    
+    @BeforeClass
+    public static void requireVirtualThreads() {
+        if (Boolean.getBoolean(REQUIRED)) {
+            assertTrue("virtual threads need Java 21 or later, running on " + System.getProperty("java.version"), 
+                    VirtualThreads.isSupported());
+        }
+        assumeTrue("virtual threads need Java 21 or later", VirtualThreads.isSupported());
+    }
+    
+    @Test
+    public void testCarrierPerConnection() {
+        // 10 pooled connections by default, plus one carrier per processor
+        int parallelism = Integer.parseInt(System.getProperty(VirtualThreads.SCHEDULER_PARALLELISM));
+        assertTrue("parallelism " + parallelism, parallelism >= 10 + Runtime.getRuntime().availableProcessors());
+    }
+    
+    @Test
+    public void testRequestsOnVirtualThreads() {
+        Contact contact = new Contact();
+        contact.setName("Yamato");
+        contact.setEmail("yamato@wano.jp");
+        ResponseEntity<Contact> created = restTemplate.postForEntity("/api/contacts", contact, Contact.class);
+        assertEquals(HttpStatus.CREATED, created.getStatusCode());
+        
+        String location = created.getHeaders().getLocation().toString();
+        ResponseEntity<Contact> found = restTemplate.getForEntity(location, Contact.class);
+        assertEquals(HttpStatus.OK, found.getStatusCode());
+        assertEquals("Yamato", found.getBody().getName());
+        
+        restTemplate.delete(location);
+    }
+}
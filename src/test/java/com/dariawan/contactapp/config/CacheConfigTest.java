@@ -0,0 +1,74 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.config;
+
+import com.dariawan.contactapp.domain.Contact;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class CacheConfigTest {
+    
+    @Test
+    public void testEachContextGetsItsOwnCacheManager() {
+        CacheConfig config = new CacheConfig();
+        CacheManager first = config.hibernateCacheManager(new CacheProperties());
+        CacheManager second = config.hibernateCacheManager(new CacheProperties());
+        try {
+            assertNotSame(first, second);
+            
+            Cache<Object, Object> contacts = second.getCache(Contact.class.getName());
+            contacts.put(1L, "cached");
+            assertNull(first.getCache(Contact.class.getName()).get(1L));
+            
+            first.close();
+            assertTrue(first.isClosed());
+            assertFalse(second.isClosed());
+            assertEquals("cached", contacts.get(1L));
+        } finally {
+            first.close();
+            second.close();
+        }
+    }
+}
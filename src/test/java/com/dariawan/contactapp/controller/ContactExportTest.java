@@ -0,0 +1,138 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.controller;
+
+import com.dariawan.contactapp.domain.Contact;
+import com.dariawan.contactapp.service.ContactService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+public class ContactExportTest {
+
+    @Autowired 
+    private MockMvc mockMvc;
+    
+    @Autowired 
+    private ContactService contactService;
+    
+    @Autowired 
+    private ObjectMapper objectMapper;
+    
+    private Contact first;
+    
+    private Contact second;
+    
+    @Before
+    public void prepareTestData() throws Exception {
+        first = save("Denjiro", "denjiro@wano.jp");
+        second = save("Raizo", "raizo@wano.jp");
+    }
+    
+    @After
+    public void deleteTestData() throws Exception {
+        contactService.deleteById(first.getId());
+        contactService.deleteById(second.getId());
+    }
+    
+    @Test
+    public void testExportAsJsonArray() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/contacts/export?format=JSON&name=@wano.jp"))
+                .andReturn();
+        // matches no name, the array is empty
+        String empty = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(0, objectMapper.readTree(empty).size());
+        
+        result = mockMvc.perform(get("/api/contacts/export?format=JSON")).andReturn();
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsString();
+        JsonNode contacts = objectMapper.readTree(body);
+        assertTrue(contacts.isArray());
+        
+        // in id order, every property of each contact
+        int firstIndex = indexOf(contacts, first.getId());
+        int secondIndex = indexOf(contacts, second.getId());
+        assertTrue(firstIndex >= 0 && firstIndex < secondIndex);
+        assertEquals("Denjiro", contacts.get(firstIndex).get("name").asText());
+        assertEquals("raizo@wano.jp", contacts.get(secondIndex).get("email").asText());
+        assertTrue(contacts.get(secondIndex).has("version"));
+    }
+    
+    private Contact save(String name, String email) throws Exception {
+        Contact contact = new Contact();
+        contact.setName(name);
+        contact.setEmail(email);
+        return contactService.save(contact);
+    }
+    
+    private static int indexOf(JsonNode contacts, Long id) {
+        for (int i = 0; i < contacts.size(); i++) {
+            if (contacts.get(i).get("id").asLong() == id) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
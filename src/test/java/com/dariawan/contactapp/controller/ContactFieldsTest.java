@@ -0,0 +1,165 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.controller;
+
+import com.dariawan.contactapp.domain.Contact;
+import com.dariawan.contactapp.service.ContactService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertEquals;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+public class ContactFieldsTest {
+
+    @Autowired 
+    private MockMvc mockMvc;
+    
+    @Autowired 
+    private ContactService contactService;
+    
+    @Autowired 
+    private ObjectMapper objectMapper;
+    
+    private Contact contact;
+    
+    @Before
+    public void prepareTestData() throws Exception {
+        contact = new Contact();
+        contact.setName("Kozuki Oden");
+        contact.setPhone("62482299");
+        contact.setEmail("oden@wano.jp");
+        contact.setPostalCode("10200");
+        contact = contactService.save(contact);
+    }
+    
+    @After
+    public void deleteTestData() throws Exception {
+        contactService.deleteById(contact.getId());
+    }
+    
+    @Test
+    public void testJsonContactWithFields() throws Exception {
+        String body = perform(get("/api/contacts/" + contact.getId() + "?fields=email,name")
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode json = objectMapper.readTree(body);
+        assertEquals(Arrays.asList("name", "email"), fieldNames(json));
+        assertEquals("oden@wano.jp", json.get("email").asText());
+    }
+    
+    @Test
+    public void testXmlContactWithFields() throws Exception {
+        perform(get("/api/contacts/" + contact.getId() + "?fields=email,name")
+                .accept(MediaType.APPLICATION_XML))
+                .andExpect(status().isOk())
+                .andExpect(content().string(startsWith("<Contact>")))
+                .andExpect(content().string(containsString("<name>Kozuki Oden</name>")))
+                .andExpect(content().string(containsString("<email>oden@wano.jp</email>")))
+                .andExpect(content().string(not(containsString("<phone>"))))
+                .andExpect(content().string(not(containsString("<id>"))));
+    }
+    
+    @Test
+    public void testJsonListWithFields() throws Exception {
+        String body = perform(get("/api/contacts?name=kozuki&fields=phone").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode json = objectMapper.readTree(body);
+        assertEquals(1, json.size());
+        assertEquals(Arrays.asList("phone"), fieldNames(json.get(0)));
+        assertEquals("62482299", json.get(0).get("phone").asText());
+    }
+    
+    @Test
+    public void testXmlListWithFields() throws Exception {
+        perform(get("/api/contacts?name=kozuki&fields=phone").accept(MediaType.APPLICATION_XML))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("<phone>62482299</phone>")))
+                .andExpect(content().string(not(containsString("<name>"))))
+                .andExpect(content().string(not(containsString("<postalCode>"))));
+    }
+    
+    @Test
+    public void testWholeContactWithoutFields() throws Exception {
+        String body = perform(get("/api/contacts/" + contact.getId()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(Arrays.asList("id", "name", "phone", "email", "address1", "address2", "address3", 
+                "postalCode", "note", "version"), fieldNames(objectMapper.readTree(body)));
+    }
+    
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+    
+    private ResultActions perform(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+}
@@ -0,0 +1,266 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.datasource;
+
+import com.dariawan.contactapp.domain.Contact;
+import com.dariawan.contactapp.service.ContactService;
+import com.dariawan.contactapp.specification.SearchMode;
+import java.net.ServerSocket;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.function.BooleanSupplier;
+import javax.persistence.EntityManagerFactory;
+import org.flywaydb.core.Flyway;
+import org.h2.tools.Server;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * An in-memory H2 database stands in for the primary and another one, served
+ * over an H2 TCP server that can be stopped, for the replica. Nothing
+ * replicates between them, so each row tells which of the two a read went to.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:primary;MODE=PostgreSQL;DB_CLOSE_DELAY=-1",
+    "spring.datasource.hikari.connection-timeout=500",
+    "contact.datasource.health-check-interval=100ms",
+    "contact.datasource.read-your-writes-window=1m" })
+@ContextConfiguration(initializers = ReplicaRoutingTest.ReplicaInitializer.class)
+@ActiveProfiles("h2")
+@AutoConfigureMockMvc
+public class ReplicaRoutingTest {
+    
+    private static final String PRIMARY_URL = "jdbc:h2:mem:primary;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+    
+    private static final String REPLICA_URL = "jdbc:h2:mem:replica;MODE=PostgreSQL;DB_CLOSE_DELAY=-1";
+    
+    private static int replicaPort;
+    
+    private static Server replicaServer;
+    
+    @Autowired 
+    private ContactService contactService;
+    
+    @Autowired 
+    private ReplicaRoutingDataSource routingDataSource;
+    
+    @Autowired 
+    private MockMvc mockMvc;
+    
+    @Autowired 
+    private EntityManagerFactory entityManagerFactory;
+    
+    @BeforeClass
+    public static void createReplica() throws Exception {
+        Flyway.configure()
+                .dataSource(REPLICA_URL, "sa", "")
+                .locations("classpath:db/migration/h2")
+                .load()
+                .migrate();
+        try (Connection conn = DriverManager.getConnection(REPLICA_URL, "sa", "")) {
+            PreparedStatement ps = conn.prepareStatement("insert into contact (name) values (?)");
+            ps.setString(1, "Replica Row");
+            ps.executeUpdate();
+        }
+        
+        try (ServerSocket socket = new ServerSocket(0)) {
+            replicaPort = socket.getLocalPort();
+        }
+        startReplica();
+    }
+    
+    @AfterClass
+    public static void stopReplica() {
+        replicaServer.stop();
+    }
+    
+    @Before
+    public void waitForReplica() throws Exception {
+        await(() -> routingDataSource.isHealthy(0));
+    }
+    
+    @Test
+    public void testReadsGoToReplica() {
+        assertEquals(1, find("Replica Row"));
+        try (ReplicaRoutingDataSource.PrimaryScope scope = ReplicaRoutingDataSource.primaryOnly()) {
+            assertEquals(0, find("Replica Row"));
+        }
+    }
+    
+    @Test
+    public void testWritesGoToPrimary() throws Exception {
+        Contact contact = new Contact();
+        contact.setName("Primary Row");
+        contactService.save(contact);
+        
+        assertEquals(0, find("Primary Row"));
+        try (ReplicaRoutingDataSource.PrimaryScope scope = ReplicaRoutingDataSource.primaryOnly()) {
+            assertEquals(1, find("Primary Row"));
+        }
+    }
+    
+    @Test
+    public void testReadYourWrites() throws Exception {
+        perform(post("/api/contacts").header("X-Client-Id", "writer")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Written Row\"}"))
+                .andExpect(status().isCreated());
+        
+        perform(get("/api/contacts?name=Written Row").header("X-Client-Id", "writer"))
+                .andExpect(content().string(containsString("Written Row")));
+        perform(get("/api/contacts?name=Written Row").header("X-Client-Id", "reader"))
+                .andExpect(content().string("[]"));
+    }
+    
+    @Test
+    public void testLaggingReplicaDoesNotFillCaches() throws Exception {
+        // the replica has not caught up with the last update on the primary yet
+        insert(PRIMARY_URL, 1000001L, "Current Row", 1L);
+        insert(REPLICA_URL, 1000001L, "Lagging Row", 0L);
+        perform(post("/api/contacts").header("X-Client-Id", "updater")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"name\":\"Updater Row\"}"))
+                .andExpect(status().isCreated());
+        
+        for (int i = 0; i < 2; i++) {
+            perform(get("/api/contacts/1000001").header("X-Client-Id", "reader"))
+                    .andExpect(content().string(containsString("Lagging Row")));
+        }
+        assertFalse(entityManagerFactory.getCache().contains(Contact.class, 1000001L));
+        
+        for (int i = 0; i < 2; i++) {
+            perform(get("/api/contacts/1000001").header("X-Client-Id", "updater"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                    .andExpect(content().string(containsString("Current Row")));
+        }
+    }
+    
+    @Test
+    public void testFailoverToPrimary() throws Exception {
+        replicaServer.stop();
+        try {
+            await(() -> !routingDataSource.isHealthy(0));
+            assertEquals(0, find("Replica Row"));
+        } finally {
+            startReplica();
+        }
+        
+        await(() -> routingDataSource.isHealthy(0));
+        assertEquals(1, find("Replica Row"));
+    }
+    
+    /**
+     * Performs the request through to its async dispatch, if it started one.
+     */
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            return mockMvc.perform(asyncDispatch(result));
+        }
+        return actions;
+    }
+    
+    private int find(String name) {
+        return contactService.findSliceByName(name, SearchMode.PREFIX, 1, 5).getNumberOfElements();
+    }
+    
+    private static void insert(String url, long id, String name, long version) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url, "sa", "")) {
+            PreparedStatement ps = conn.prepareStatement("insert into contact (id, name, version) values (?, ?, ?)");
+            ps.setLong(1, id);
+            ps.setString(2, name);
+            ps.setLong(3, version);
+            ps.executeUpdate();
+        }
+    }
+    
+    private static void startReplica() throws SQLException {
+        replicaServer = Server.createTcpServer("-tcpPort", String.valueOf(replicaPort)).start();
+    }
+    
+    private void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(50);
+        }
+    }
+    
+    static class ReplicaInitializer implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+        @Override
+        public void initialize(ConfigurableApplicationContext context) {
+            TestPropertyValues.of("contact.datasource.replicas[0].url=jdbc:h2:tcp://localhost:" 
+                    + replicaPort + "/mem:replica;MODE=PostgreSQL").applyTo(context);
+        }
+    }
+}
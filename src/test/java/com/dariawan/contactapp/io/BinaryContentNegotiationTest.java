@@ -0,0 +1,185 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.io;
+
+import com.dariawan.contactapp.domain.Contact;
+import com.dariawan.contactapp.service.ContactService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+public class BinaryContentNegotiationTest {
+    
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+    
+    private static final MediaType CBOR = MediaType.valueOf("application/cbor");
+    
+    private static final MediaType PROTOBUF = ContactProtobufHttpMessageConverter.APPLICATION_PROTOBUF;
+
+    @Autowired 
+    private MockMvc mockMvc;
+    
+    @Autowired 
+    private ContactService contactService;
+    
+    @Autowired 
+    private ObjectMapper objectMapper;
+    
+    private ContactProtobufHttpMessageConverter protobuf;
+    
+    private Contact contact;
+    
+    @Before
+    public void prepareTestData() throws Exception {
+        protobuf = new ContactProtobufHttpMessageConverter(objectMapper);
+        contact = new Contact();
+        contact.setName("Jinbe");
+        contact.setEmail("jinbe@strawhat.com");
+        contact.setPostalCode("10100");
+        contact = contactService.save(contact);
+    }
+    
+    @After
+    public void deleteTestData() throws Exception {
+        contactService.deleteById(contact.getId());
+    }
+    
+    @Test
+    public void testJsonStaysTheDefault() throws Exception {
+        perform(get("/api/contacts/" + contact.getId()).accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+    }
+    
+    @Test
+    public void testSmileAndCbor() throws Exception {
+        byte[] smile = perform(get("/api/contacts/" + contact.getId()).accept(SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals("Jinbe", new ObjectMapper(new SmileFactory()).readValue(smile, Contact.class).getName());
+        
+        byte[] cbor = perform(get("/api/contacts/" + contact.getId()).accept(CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals("10100", new ObjectMapper(new CBORFactory()).readValue(cbor, Contact.class).getPostalCode());
+    }
+    
+    @Test
+    public void testProtobufContact() throws Exception {
+        Contact found = (Contact) protobuf.read(Contact.class, null, new MockHttpInputMessage(
+                perform(get("/api/contacts/" + contact.getId()).accept(PROTOBUF))
+                        .andExpect(status().isOk())
+                        .andReturn().getResponse().getContentAsByteArray()));
+        assertEquals(contact.getId(), found.getId());
+        assertEquals("jinbe@strawhat.com", found.getEmail());
+        
+        // only the requested fields are set
+        Contact partial = (Contact) protobuf.read(Contact.class, null, new MockHttpInputMessage(
+                perform(get("/api/contacts/" + contact.getId() + "?fields=name").accept(PROTOBUF))
+                        .andExpect(status().isOk())
+                        .andReturn().getResponse().getContentAsByteArray()));
+        assertEquals("Jinbe", partial.getName());
+        assertNull(partial.getEmail());
+    }
+    
+    @Test
+    public void testProtobufList() throws Exception {
+        byte[] page = perform(get("/api/contacts?name=jinbe").accept(PROTOBUF))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        @SuppressWarnings("unchecked")
+        List<Contact> contacts = (List<Contact>) protobuf.read(
+                new ParameterizedTypeReference<List<Contact>>() { }.getType(), null, new MockHttpInputMessage(page));
+        assertEquals(1, contacts.size());
+        assertEquals("Jinbe", contacts.get(0).getName());
+    }
+    
+    @Test
+    public void testAddContactAsProtobuf() throws Exception {
+        Contact brook = new Contact();
+        brook.setName("Brook");
+        brook.setEmail("brook@strawhat.com");
+        MockHttpOutputMessage body = new MockHttpOutputMessage();
+        protobuf.write(brook, Contact.class, PROTOBUF, body);
+        
+        MvcResult created = perform(post("/api/contacts")
+                .contentType(PROTOBUF)
+                .content(body.getBodyAsBytes()))
+                .andExpect(status().isCreated())
+                .andReturn();
+        String location = created.getResponse().getHeader("Location");
+        contactService.deleteById(Long.valueOf(location.substring(location.lastIndexOf('/') + 1)));
+    }
+    
+    private ResultActions perform(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.io;
+
+import com.dariawan.contactapp.domain.Address;
+import com.dariawan.contactapp.domain.Contact;
+import com.dariawan.contactapp.service.ContactService;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+public class ContactResponseCacheTest {
+
+    @Autowired 
+    private MockMvc mockMvc;
+    
+    @Autowired 
+    private ContactService contactService;
+    
+    @Autowired 
+    private ContactResponseCache responseCache;
+    
+    private Contact contact;
+    
+    @Before
+    public void prepareTestData() throws Exception {
+        contact = new Contact();
+        contact.setName("Franky");
+        contact.setEmail("franky@strawhat.com");
+        contact.setAddress2("Water Seven");
+        contact = contactService.save(contact);
+    }
+    
+    @After
+    public void deleteTestData() throws Exception {
+        contactService.deleteById(contact.getId());
+    }
+    
+    @Test
+    public void testSecondReadIsServedFromTheCache() throws Exception {
+        long hits = responseCache.getHits();
+        
+        String first = perform(get("/api/contacts/" + contact.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String second = perform(get("/api/contacts/" + contact.getId()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andReturn().getResponse().getContentAsString();
+        assertEquals(first, second);
+        assertEquals(hits + 1, responseCache.getHits());
+        
+        perform(get("/api/contacts/" + contact.getId()).header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isNotModified());
+        
+        // every media type is cached on its own
+        perform(get("/api/contacts/" + contact.getId()).accept(MediaType.APPLICATION_XML))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("<name>Franky</name>")));
+    }
+    
+    @Test
+    public void testWritesInvalidate() throws Exception {
+        perform(get("/api/contacts/" + contact.getId())).andExpect(status().isOk());
+        
+        Address address = new Address();
+        address.setAddress2("Thousand Sunny");
+        contactService.updateAddress(contact.getId(), address, null);
+        
+        perform(get("/api/contacts/" + contact.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(content().string(containsString("Thousand Sunny")));
+    }
+    
+    @Test
+    public void testOtherVersionIsNotServed() throws Exception {
+        responseCache.put(contact.getId(), MediaType.APPLICATION_JSON, 7L, 
+                "{\"name\":\"Cyborg Franky\"}".getBytes(StandardCharsets.UTF_8), 
+                responseCache.stamp(contact.getId()));
+        
+        perform(get("/api/contacts/" + contact.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"0\""))
+                .andExpect(content().string(containsString("\"Franky\"")));
+        
+        try (ContactResponseCache cache = new ContactResponseCache(1, Duration.ofMinutes(1))) {
+            cache.put(7L, MediaType.APPLICATION_JSON, 4L, new byte[] { 1 }, cache.stamp(7L));
+            assertNull(cache.get(7L, MediaType.APPLICATION_JSON, 5L));
+            assertNull(cache.get(7L, MediaType.APPLICATION_JSON, null));
+        }
+    }
+    
+    @Test
+    public void testPutAfterInvalidationIsIgnored() {
+        try (ContactResponseCache cache = new ContactResponseCache(1, Duration.ofMinutes(1))) {
+            byte[] body = { 1, 2, 3 };
+            cache.put(7L, MediaType.APPLICATION_JSON, 4L, body, cache.stamp(7L));
+            assertEquals(4L, cache.get(7L, MediaType.APPLICATION_JSON, 4L).getVersion());
+            assertArrayEquals(body, cache.get(7L, MediaType.APPLICATION_JSON, 4L).getBody());
+            
+            // read before the write completed, cached after it
+            long stamp = cache.stamp(7L);
+            cache.invalidate(7L);
+            assertNull(cache.get(7L, MediaType.APPLICATION_JSON, 4L));
+            cache.put(7L, MediaType.APPLICATION_JSON, 4L, body, stamp);
+            assertNull(cache.get(7L, MediaType.APPLICATION_JSON, 4L));
+        }
+    }
+    
+    private ResultActions perform(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+}
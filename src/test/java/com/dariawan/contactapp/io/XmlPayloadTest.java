@@ -0,0 +1,101 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.io;
+
+import com.dariawan.contactapp.service.ContactService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("h2")
+public class XmlPayloadTest {
+    
+    @Autowired 
+    private MockMvc mockMvc;
+    
+    @Autowired 
+    private ContactService contactService;
+    
+    @Test
+    public void testXmlContact() throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/contacts")
+                .contentType(MediaType.APPLICATION_XML)
+                .content("<Contact><name>Kin'emon</name><email>kinemon@wano.jp</email></Contact>"))
+                .andReturn();
+        MvcResult created = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isCreated())
+                .andReturn();
+        String location = created.getResponse().getHeader("Location");
+        contactService.deleteById(Long.valueOf(location.substring(location.lastIndexOf('/') + 1)));
+    }
+    
+    @Test
+    public void testDoctypeIsRejected() throws Exception {
+        mockMvc.perform(post("/api/contacts")
+                .contentType(MediaType.APPLICATION_XML)
+                .content("<?xml version=\"1.0\"?>"
+                        + "<!DOCTYPE Contact [<!ENTITY injected \"Injected\">]>"
+                        + "<Contact><name>&injected;</name></Contact>"))
+                .andExpect(status().isBadRequest());
+    }
+    
+    @Test
+    public void testExternalEntityIsRejected() throws Exception {
+        mockMvc.perform(post("/api/contacts/lookup")
+                .contentType(MediaType.APPLICATION_XML)
+                .accept(MediaType.APPLICATION_XML)
+                .content("<?xml version=\"1.0\"?>"
+                        + "<!DOCTYPE ArrayList [<!ENTITY id SYSTEM \"file:///etc/hostname\">]>"
+                        + "<ArrayList><item>&id;</item></ArrayList>"))
+                .andExpect(status().isBadRequest());
+    }
+}
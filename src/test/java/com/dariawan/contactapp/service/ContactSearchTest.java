@@ -0,0 +1,157 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.service;
+
+import com.dariawan.contactapp.domain.Contact;
+import com.dariawan.contactapp.domain.ContactCursor;
+import com.dariawan.contactapp.specification.SearchMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Slice;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("h2")
+public class ContactSearchTest {
+
+    @Autowired 
+    private DataSource dataSource;
+    
+    @Autowired 
+    private ContactService contactService;
+    
+    @Before
+    public void prepareTestData() throws Exception {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.prepareStatement("delete from contact").executeUpdate();
+            
+            PreparedStatement ps = conn.prepareStatement("insert into contact (name, email) values (?, ?)");
+            for (String name : new String[] { "Monkey D. Luffy", "Monkey D. Garp", "Nami", 
+                    "Nico Robin", "Trafalgar D. Water Law", "100% Franky" }) {
+                ps.setString(1, name);
+                ps.setString(2, "search@example.com");
+                ps.executeUpdate();
+            }
+        }
+    }
+    
+    @Test
+    public void testPrefixSearchIgnoresCase() {
+        List<String> names = search("monkey", SearchMode.PREFIX);
+        assertEquals(2, names.size());
+        assertTrue(names.contains("Monkey D. Luffy"));
+        assertTrue(names.contains("Monkey D. Garp"));
+        
+        assertTrue(search("luffy", SearchMode.PREFIX).isEmpty());
+    }
+    
+    @Test
+    public void testSubstringSearchIgnoresCase() {
+        List<String> names = search(" D. ", SearchMode.SUBSTRING);
+        assertEquals(3, names.size());
+        
+        assertEquals(1, search("ROBIN", SearchMode.SUBSTRING).size());
+    }
+    
+    @Test
+    public void testWildcardsAreMatchedLiterally() {
+        assertEquals(1, search("100%", SearchMode.PREFIX).size());
+        assertTrue(search("N_mi", SearchMode.SUBSTRING).isEmpty());
+        assertTrue(search("%", SearchMode.SUBSTRING).size() == 1);
+    }
+    
+    @Test
+    public void testKeysetPagingReachesContactsWithoutName() throws Exception {
+        try (Connection conn = dataSource.getConnection()) {
+            PreparedStatement ps = conn.prepareStatement("insert into contact (name, email) values (null, ?)");
+            for (int i = 0; i < 3; i++) {
+                ps.setString(1, "noname@example.com");
+                ps.executeUpdate();
+            }
+        }
+        
+        List<Contact> contacts = new ArrayList<>();
+        ContactCursor cursor = null;
+        Slice<Contact> slice;
+        do {
+            slice = contactService.findAllAfter(null, SearchMode.SUBSTRING, cursor, 2);
+            contacts.addAll(slice.getContent());
+            if (slice.hasContent()) {
+                cursor = ContactCursor.decode(ContactCursor.of(
+                        slice.getContent().get(slice.getNumberOfElements() - 1)).encode());
+            }
+        } while (slice.hasNext());
+        
+        assertEquals(9, contacts.size());
+        for (int i = 0; i < 6; i++) {
+            assertNotNull(contacts.get(i).getName());
+        }
+        for (int i = 6; i < 9; i++) {
+            assertNull(contacts.get(i).getName());
+        }
+        assertTrue(contacts.get(6).getId() < contacts.get(7).getId());
+        assertTrue(contacts.get(7).getId() < contacts.get(8).getId());
+        
+        assertNull(cursor.getName());
+        assertEquals(contacts.get(8).getId(), cursor.getId());
+        assertFalse(contactService.findAllAfter(null, SearchMode.SUBSTRING, cursor, 2).hasContent());
+    }
+    
+    private List<String> search(String name, SearchMode mode) {
+        return contactService.findSliceByName(name, mode, 1, 20).getContent().stream()
+                .map(Contact::getName)
+                .collect(Collectors.toList());
+    }
+}
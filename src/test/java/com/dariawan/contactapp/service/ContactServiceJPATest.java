@@ -38,15 +38,35 @@
  */
 package com.dariawan.contactapp.service;
 
+import com.dariawan.contactapp.domain.CacheRegionStatistics;
+import com.dariawan.contactapp.domain.Address;
 import com.dariawan.contactapp.domain.Contact;
+import com.dariawan.contactapp.domain.ContactBatchResult;
+import com.dariawan.contactapp.domain.ContactCursor;
+import com.dariawan.contactapp.domain.ContactFields;
+import com.dariawan.contactapp.exception.PreconditionFailedException;
 import com.dariawan.contactapp.exception.ResourceNotFoundException;
+import com.dariawan.contactapp.io.ContactFormat;
+import com.dariawan.contactapp.io.ContactRecordReader;
+import com.dariawan.contactapp.specification.SearchMode;
+import com.dariawan.contactapp.domain.ContactImportResult;
+import com.dariawan.contactapp.domain.ContactLookupResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import javax.sql.DataSource;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -54,6 +74,7 @@ import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Slice;
 import org.springframework.test.context.junit4.SpringRunner;
 
 @RunWith(SpringRunner.class)
@@ -66,6 +87,9 @@ public class ContactServiceJPATest {
     @Autowired 
     private ContactService contactService;
     
+    @Autowired 
+    private CacheStatisticsService cacheStatisticsService;
+    
     @Before
     public void cleanTestData() throws Exception {
         try (Connection conn = dataSource.getConnection()) {
@@ -88,6 +112,218 @@ public class ContactServiceJPATest {
         }
     }
     
+    @Test
+    public void testFindSliceContact() {
+        Slice<Contact> first = contactService.findSlice(1, 5);
+        assertEquals(5, first.getNumberOfElements());
+        assertTrue(first.hasNext());
+        
+        Slice<Contact> second = contactService.findSlice(2, 5);
+        assertEquals(4, second.getNumberOfElements());
+        assertFalse(second.hasNext());
+        assertTrue(first.getContent().get(4).getId() < second.getContent().get(0).getId());
+    }
+    
+    @Test
+    public void testFindSliceWithFields() throws Exception {
+        List<String> fields = ContactFields.parse("phone, name");
+        Slice<Contact> slice = contactService.findSlice(1, 5, fields);
+        assertEquals(5, slice.getNumberOfElements());
+        assertTrue(slice.hasNext());
+        for (Contact contact : slice.getContent()) {
+            assertNotNull(contact.getName());
+            assertNull(contact.getId());
+            assertNull(contact.getEmail());
+            assertNull(contact.getNote());
+        }
+        
+        Long id = contactService.findSlice(1, 1).getContent().get(0).getId();
+        Contact contact = contactService.findById(id, fields);
+        assertNotNull(contact.getName());
+        assertNotNull(contact.getVersion());
+    }
+    
+    @Test
+    public void testLookupContact() throws Exception {
+        List<Contact> contacts = contactService.findSlice(1, 3).getContent();
+        Long first = contacts.get(0).getId();
+        Long third = contacts.get(2).getId();
+        
+        ContactLookupResult result = contactService.lookup(Arrays.asList(third, -1L, first, third));
+        assertEquals(2, result.getContacts().size());
+        assertEquals(third, result.getContacts().get(0).getId());
+        assertEquals(first, result.getContacts().get(1).getId());
+        assertEquals(Arrays.asList(-1L), result.getMissing());
+    }
+    
+    @Test
+    public void testFindAllAfterContact() throws Exception {
+        List<Contact> users = new ArrayList<>();
+        ContactCursor cursor = null;
+        Slice<Contact> slice;
+        do {
+            slice = contactService.findAllAfter(null, SearchMode.SUBSTRING, cursor, 4);
+            assertTrue(slice.getNumberOfElements() <= 4);
+            users.addAll(slice.getContent());
+            if (slice.hasContent()) {
+                cursor = ContactCursor.decode(ContactCursor.of(
+                        slice.getContent().get(slice.getNumberOfElements() - 1)).encode());
+            }
+        } while (slice.hasNext());
+        
+        assertEquals(9, users.size());
+        for (int i = 1; i < users.size(); i++) {
+            assertTrue(users.get(i - 1).getName().compareTo(users.get(i).getName()) <= 0);
+        }
+        assertFalse(contactService.findAllAfter(null, SearchMode.SUBSTRING, cursor, 4).hasContent());
+    }
+    
+    @Test
+    public void testExportAllContact() {
+        List<Contact> users = new ArrayList<>();
+        contactService.exportAll(null, SearchMode.SUBSTRING, users::add);
+        assertEquals(9, users.size());
+        for (int i = 1; i < users.size(); i++) {
+            assertTrue(users.get(i - 1).getId() < users.get(i).getId());
+        }
+        
+        users.clear();
+        contactService.exportAll("ro", SearchMode.SUBSTRING, users::add);
+        assertEquals(3, users.size());
+    }
+    
+    @Test
+    public void testFindByIdUsesSecondLevelCache() throws Exception {
+        Long id = contactService.findAll(1, 1).get(0).getId();
+        contactService.findById(id);
+        long hits = contactCacheHits();
+        
+        assertEquals(id, contactService.findById(id).getId());
+        assertTrue(contactCacheHits() > hits);
+    }
+    
+    private long contactCacheHits() throws Exception {
+        for (CacheRegionStatistics region : cacheStatisticsService.findAll()) {
+            if (region.getRegion().equals(Contact.class.getName())) {
+                return region.getHits();
+            }
+        }
+        throw new AssertionError("No second-level cache region for Contact");
+    }
+    
+    @Test
+    public void testSaveAllContact() throws Exception {
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            Contact c = new Contact();
+            c.setName("Marine " + i);
+            c.setEmail("marine" + i + "@navy.gov");
+            contacts.add(c);
+        }
+        
+        List<ContactBatchResult> results = contactService.saveAll(contacts);
+        assertEquals(120, results.size());
+        HashSet<Long> ids = new HashSet<>();
+        for (ContactBatchResult result : results) {
+            assertEquals(ContactBatchResult.Status.CREATED, result.getStatus());
+            ids.add(result.getId());
+        }
+        assertEquals(120, ids.size());
+        assertEquals(129L, (long) contactService.count());
+        
+        Contact invalid = new Contact();
+        invalid.setName("Coby");
+        invalid.setEmail("not an email");
+        results = contactService.saveAll(Arrays.asList(new Contact(), invalid));
+        assertEquals(ContactBatchResult.Status.INVALID, results.get(0).getStatus());
+        assertEquals(ContactBatchResult.Status.INVALID, results.get(1).getStatus());
+        assertEquals(129L, (long) contactService.count());
+    }
+    
+    @Test
+    public void testImportAllContact() throws Exception {
+        String ndjson = "{\"name\":\"Shanks\",\"email\":\"shanks@redhair.com\"}\n"
+                + "\n"
+                + "{\"name\":\"Benn Beckman\",\"phone\":\"x\"}\n"
+                + "{\"name\":\n"
+                + "{\"id\":1,\"name\":\"Lucky Roux\",\"email\":\"roux@redhair.com\"}\n";
+        ContactImportResult result = importAll(ContactFormat.NDJSON, ndjson);
+        assertEquals(4, result.getProcessed());
+        assertEquals(2, result.getImported());
+        assertEquals(2, result.getRejected());
+        assertEquals(3, result.getRejections().get(0).getLine());
+        assertEquals(4, result.getRejections().get(1).getLine());
+        
+        String csv = "name,email,phone\n"
+                + "Yasopp,yasopp@redhair.com,\n"
+                + ",nobody@redhair.com,\n"
+                + "\"Limejuice, the\",limejuice@redhair.com,09012345678\n";
+        result = importAll(ContactFormat.CSV, csv);
+        assertEquals(3, result.getProcessed());
+        assertEquals(2, result.getImported());
+        assertEquals(3, result.getRejections().get(0).getLine());
+        assertEquals(13L, (long) contactService.count());
+    }
+    
+    @Test
+    public void testImportRejectsOverlongLine() throws Exception {
+        StringBuilder ndjson = new StringBuilder("{\"name\":\"Benn Beckman\",\"note\":\"");
+        for (int i = 0; i < ContactRecordReader.MAX_LINE_LENGTH; i++) {
+            ndjson.append('x');
+        }
+        ndjson.append("\"}\n{\"name\":\"Rockstar\",\"email\":\"rockstar@redhair.com\"}\n");
+        
+        ContactImportResult result = importAll(ContactFormat.NDJSON, ndjson.toString());
+        assertEquals(2, result.getProcessed());
+        assertEquals(1, result.getImported());
+        assertEquals(1, result.getRejections().size());
+        assertEquals(1, result.getRejections().get(0).getLine());
+    }
+    
+    private ContactImportResult importAll(ContactFormat format, String content) throws Exception {
+        try (ContactRecordReader records = format.reader(new ObjectMapper(), 
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)))) {
+            return contactService.importAll(records);
+        }
+    }
+    
+    @Test
+    public void testStaleVersionIsRejected() throws Exception {
+        Contact c = new Contact();
+        c.setName("Jinbe");
+        c.setEmail("jinbe@sunpirat.es");
+        contactService.save(c);
+        
+        Contact read = contactService.findById(c.getId());
+        Long version = read.getVersion();
+        assertNotNull(version);
+        
+        Address address = new Address();
+        address.setAddress1("Fishman Island");
+        contactService.updateAddress(c.getId(), address, version);
+        assertTrue(contactService.findById(c.getId()).getVersion() > version);
+        
+        // still holding the version read before the address change
+        read.setPhone("09011112222");
+        try {
+            contactService.update(read);
+            fail("stale update accepted");
+        } catch (PreconditionFailedException ex) {
+            // expected
+        }
+        try {
+            contactService.deleteById(c.getId(), version);
+            fail("stale delete accepted");
+        } catch (PreconditionFailedException ex) {
+            // expected
+        }
+        
+        read.setVersion(null);
+        contactService.update(read);
+        assertEquals("09011112222", contactService.findById(c.getId()).getPhone());
+        contactService.deleteById(c.getId(), contactService.findById(c.getId()).getVersion());
+    }
+    
     @Rule
     public ExpectedException exceptionRule = ExpectedException.none();
     
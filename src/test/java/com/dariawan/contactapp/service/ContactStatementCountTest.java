@@ -0,0 +1,189 @@
+/**
+ * Documenting Spring Boot REST API with SpringDoc + OpenAPI 3 (https://www.dariawan.com)
+ * Copyright (C) 2019 Dariawan <hello@dariawan.com>
+ *
+ * Creative Commons Attribution-ShareAlike 4.0 International License
+ *
+ * Under this license, you are free to:
+ * # Share - copy and redistribute the material in any medium or format
+ * # Adapt - remix, transform, and build upon the material for any purpose,
+ *   even commercially.
+ *
+ * The licensor cannot revoke these freedoms
+ * as long as you follow the license terms.
+ *
+ * License terms:
+ * # Attribution - You must give appropriate credit, provide a link to the
+ *   license, and indicate if changes were made. You may do so in any
+ *   reasonable manner, but not in any way that suggests the licensor
+ *   endorses you or your use.
+ * # ShareAlike - If you remix, transform, or build upon the material, you must
+ *   distribute your contributions under the same license as the original.
+ * # No additional restrictions - You may not apply legal terms or
+ *   technological measures that legally restrict others from doing anything the
+ *   license permits.
+ *
+ * Notices:
+ * # You do not have to comply with the license for elements of the material in
+ *   the public domain or where your use is permitted by an applicable exception
+ *   or limitation.
+ * # No warranties are given. The license may not give you all of
+ *   the permissions necessary for your intended use. For example, other rights
+ *   such as publicity, privacy, or moral rights may limit how you use
+ *   the material.
+ *
+ * You may obtain a copy of the License at
+ *   https://creativecommons.org/licenses/by-sa/4.0/
+ *   https://creativecommons.org/licenses/by-sa/4.0/legalcode
+ */
+package com.dariawan.contactapp.service;
+
+import com.dariawan.contactapp.domain.Address;
+import com.dariawan.contactapp.domain.Contact;
+import com.dariawan.contactapp.domain.ContactLookupResult;
+import com.dariawan.contactapp.exception.BadResourceException;
+import com.dariawan.contactapp.exception.PreconditionFailedException;
+import com.dariawan.contactapp.exception.ResourceNotFoundException;
+import com.dariawan.contactapp.support.StatementCounter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import javax.persistence.EntityManagerFactory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("h2")
+@Import(StatementCounter.class)
+public class ContactStatementCountTest {
+
+    @Autowired 
+    private ContactService contactService;
+    
+    @Autowired 
+    private StatementCounter statements;
+    
+    @Autowired 
+    private EntityManagerFactory entityManagerFactory;
+    
+    private Contact contact;
+    
+    @Before
+    public void prepareTestData() throws Exception {
+        contact = new Contact();
+        contact.setName("Tony Tony Chopper");
+        contact.setEmail("chopper@strawhat.com");
+        contact = contactService.save(contact);
+        contact = contactService.findById(contact.getId());
+    }
+    
+    @Test
+    public void testUpdateIsOneStatement() throws Exception {
+        contact.setNote("Cotton Candy Lover");
+        
+        statements.reset();
+        contactService.update(contact);
+        assertEquals(1, statements.count());
+        
+        // a stale version needs one more statement to tell it from a missing contact
+        statements.reset();
+        try {
+            contactService.update(contact);
+            fail("stale update accepted");
+        } catch (PreconditionFailedException ex) {
+            assertEquals(2, statements.count());
+        }
+        
+        contact.setVersion(null);
+        statements.reset();
+        contactService.update(contact);
+        assertEquals(1, statements.count());
+        
+        contactService.deleteById(contact.getId());
+    }
+    
+    @Test
+    public void testPatchIsOneStatement() throws Exception {
+        Address address = new Address();
+        address.setAddress1("Drum Island");
+        address.setPostalCode("12345");
+        
+        statements.reset();
+        contactService.updateAddress(contact.getId(), address, contact.getVersion());
+        assertEquals(1, statements.count());
+        
+        Map<String, Object> patch = new HashMap<>();
+        patch.put("phone", "62482211");
+        patch.put("postalCode", null);
+        statements.reset();
+        contactService.patch(contact.getId(), patch, null);
+        assertEquals(1, statements.count());
+        
+        Contact patched = contactService.findById(contact.getId());
+        assertEquals("Tony Tony Chopper", patched.getName());
+        assertEquals("62482211", patched.getPhone());
+        assertEquals("Drum Island", patched.getAddress1());
+        assertNull(patched.getPostalCode());
+        assertEquals(contact.getVersion() + 2, (long) patched.getVersion());
+        
+        // rejected before reaching the database
+        patch.clear();
+        patch.put("id", 1);
+        patch.put("email", "not an email");
+        patch.put("nickname", "Chopper");
+        statements.reset();
+        try {
+            contactService.patch(contact.getId(), patch, null);
+            fail("invalid patch accepted");
+        } catch (BadResourceException ex) {
+            assertEquals(3, ex.getErrorMessages().size());
+            assertEquals(0, statements.count());
+        }
+        
+        contactService.deleteById(contact.getId());
+    }
+    
+    @Test
+    public void testLookupIsOneQuery() throws Exception {
+        entityManagerFactory.getCache().evictAll();
+        
+        statements.reset();
+        ContactLookupResult result = contactService.lookup(Arrays.asList(-1L, contact.getId(), -1L));
+        assertEquals(1, statements.count());
+        assertEquals(1, result.getContacts().size());
+        assertEquals(Arrays.asList(-1L), result.getMissing());
+        
+        // now served from the second-level cache
+        statements.reset();
+        result = contactService.lookup(Arrays.asList(contact.getId()));
+        assertEquals(0, statements.count());
+        assertEquals(contact.getName(), result.getContacts().get(0).getName());
+        
+        contactService.deleteById(contact.getId());
+    }
+    
+    @Test
+    public void testDeleteIsOneStatement() throws Exception {
+        statements.reset();
+        contactService.deleteById(contact.getId(), contact.getVersion());
+        assertEquals(1, statements.count());
+        
+        statements.reset();
+        try {
+            contactService.deleteById(contact.getId());
+            fail("missing contact deleted");
+        } catch (ResourceNotFoundException ex) {
+            assertEquals(1, statements.count());
+        }
+    }
+}